@@ -0,0 +1,118 @@
+package com.example.sqlantlr.controller;
+
+import com.example.sqlantlr.parser.LexerDifferential;
+import com.example.sqlantlr.service.DfaSnapshotService;
+import com.example.sqlantlr.service.ParserCacheManager;
+import com.example.sqlantlr.service.SqlValidatorService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sql/admin")
+public class SqlAdminController {
+
+    private final SqlValidatorService validatorService;
+    private final DfaSnapshotService snapshotService;
+    private final ParserCacheManager cacheManager;
+
+    @Autowired
+    public SqlAdminController(SqlValidatorService validatorService, DfaSnapshotService snapshotService,
+                              ParserCacheManager cacheManager) {
+        this.validatorService = validatorService;
+        this.snapshotService = snapshotService;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Endpoint exposing the parser counters
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> response = validatorService.getStats().toMap();
+        response.put("cache", cacheManager.toMap());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Endpoint serving the grammar rules of sampled statements, ranked by time spent in prediction
+     */
+    @GetMapping("/profile")
+    public ResponseEntity<Map<String, Object>> profile(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (limit < 0) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "limit must not be negative: " + limit);
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(validatorService.getProfiler().toMap(limit));
+    }
+
+    /**
+     * Endpoint to discard the profile collected so far
+     */
+    @DeleteMapping("/profile")
+    public ResponseEntity<Map<String, Object>> resetProfile() {
+        validatorService.getProfiler().reset();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Endpoint to check the hand-written lexer token for token against the generated one over an uploaded script
+     */
+    @PostMapping("/lexer-check")
+    public ResponseEntity<Map<String, Object>> checkLexer(@RequestParam("file") MultipartFile file) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            LexerDifferential.Report report = LexerDifferential.compare(new String(file.getBytes(), StandardCharsets.UTF_8));
+            response.put("tokens", report.getTokens());
+            response.put("match", report.isMatch());
+            if (!report.isMatch()) {
+                response.put("mismatch", report.getMismatch());
+            }
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("error", "Failed to read file: " + e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Endpoint to write the parser DFA snapshot now instead of waiting for shutdown
+     */
+    @PostMapping("/dfa-snapshot")
+    public ResponseEntity<Map<String, Object>> saveDfaSnapshot() {
+        Map<String, Object> response = new HashMap<>();
+        if (!snapshotService.isEnabled()) {
+            response.put("success", false);
+            response.put("error", "No DFA snapshot path configured");
+            return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+        }
+        try {
+            response.put("success", true);
+            response.put("states", snapshotService.save());
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("error", "Failed to write snapshot: " + e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
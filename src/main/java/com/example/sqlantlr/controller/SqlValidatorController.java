@@ -1,18 +1,38 @@
 package com.example.sqlantlr.controller;
 
 import com.example.sqlantlr.service.SqlFileParserService;
+import com.example.sqlantlr.service.SqlLocalFileService;
 import com.example.sqlantlr.service.SqlValidatorService;
+import com.example.sqlantlr.service.StatementIterator;
+import com.example.sqlantlr.service.StatementSpans;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/sql")
@@ -20,11 +40,30 @@ public class SqlValidatorController {
 
     private final SqlValidatorService validatorService;
     private final SqlFileParserService fileParserService;
+    private final SqlLocalFileService localFileService;
+
+    private final ObjectMapper objectMapper;
+
+    // Whether "split" mode cuts files with the lexer rather than the character scanner
+    private final boolean lexerSplitter;
+
+    // Whether "split" mode with the character scanner streams results as they are validated
+    private final boolean pipelined;
 
     @Autowired
-    public SqlValidatorController(SqlValidatorService validatorService, SqlFileParserService fileParserService) {
+    public SqlValidatorController(SqlValidatorService validatorService, SqlFileParserService fileParserService,
+                                  SqlLocalFileService localFileService, ObjectMapper objectMapper,
+                                  @Value("${sql.validator.splitter:char}") String splitter,
+                                  @Value("${sql.validator.pipeline.enabled:false}") boolean pipelined) {
         this.validatorService = validatorService;
         this.fileParserService = fileParserService;
+        this.localFileService = localFileService;
+        this.objectMapper = objectMapper;
+        this.pipelined = pipelined;
+        if (!"char".equals(splitter) && !"lexer".equals(splitter)) {
+            throw new IllegalArgumentException("Unknown sql.validator.splitter: " + splitter);
+        }
+        this.lexerSplitter = "lexer".equals(splitter);
     }
 
     /**
@@ -37,14 +76,51 @@ public class SqlValidatorController {
     }
 
     /**
-     * Endpoint to validate a SQL file
+     * Endpoint to validate a SQL file. In "split" mode (the default) the file is split into statements
+     * that are validated independently: the char splitter cuts it in one pass over its characters and
+     * validates the statements in parallel, while with the lexer splitter the file is lexed once and
+     * each statement's tokens are parsed as they are. Both apply DELIMITER. "script" mode always lexes
+     * and parses the file in a single pass.
+     *
+     * With the char splitter and sql.validator.pipeline.enabled set (it is off by default), the file is
+     * read, validated and answered at the same time: results are written as they are validated, in
+     * file order, and the totals follow them. As the status is sent before the results are known, it
+     * is 200 unless the request itself is rejected; "success" tells whether every statement is valid.
+     *
+     * A gzip-compressed file is inflated as it is read. A zip archive's .sql entries are validated
+     * together, spread over the validation threads, and answered at once with each entry's results
+     * and totals under "files", keyed by entry name. Either is rejected with 400 once it inflates past
+     * sql.validator.max-inflated-bytes, unless it is pipelined: a pipelined file is never held whole, so
+     * a gzip-compressed one is read to its end just as a plain one is.
      */
     @PostMapping("/validate-file")
-    public ResponseEntity<Map<String, Object>> validateFile(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> validateFile(@RequestParam("file") MultipartFile file,
+                                                            @RequestParam(value = "mode", defaultValue = "split") String mode,
+                                                            HttpServletResponse servletResponse) {
+        if (!"split".equals(mode) && !"script".equals(mode)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "Unknown mode: " + mode);
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
         try {
-            List<String> queries = fileParserService.parseFile(file);
-            List<SqlValidatorService.ValidationResult> results = validatorService.validateQueries(queries);
-            return createResponse(results);
+            InputStream input = new BufferedInputStream(file.getInputStream());
+            if (SqlFileParserService.detectCompression(input) == SqlFileParserService.Compression.ZIP) {
+                return createArchiveResponse(validateArchive(fileParserService.readArchive(input), mode));
+            }
+            if ("split".equals(mode) && !lexerSplitter && pipelined) {
+                servletResponse.setStatus(HttpStatus.OK.value());
+                servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                writePipelined(input, servletResponse.getOutputStream());
+                // The response is written
+                return null;
+            }
+            // Decoded once; every statement is validated as a view of this text
+            String script;
+            try (InputStream decompressed = fileParserService.decompress(input)) {
+                script = new String(decompressed.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            return createResponse(validateText(script, mode));
         } catch (IOException e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -53,6 +129,128 @@ public class SqlValidatorController {
         }
     }
 
+    /**
+     * Endpoint to validate a SQL file on the server's disk by its path, instead of uploading it. The
+     * file is memory-mapped, and split and lexed where it lies rather than copied onto the heap.
+     * Modes are as for /validate-file, but results are never streamed. Only files under the
+     * directories in sql.validator.local-files.base-dirs can be read; others are refused with 403.
+     */
+    @PostMapping("/validate-path")
+    public ResponseEntity<Map<String, Object>> validatePath(@RequestParam("path") String path,
+                                                            @RequestParam(value = "mode", defaultValue = "split") String mode) {
+        if (!"split".equals(mode) && !"script".equals(mode)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "Unknown mode: " + mode);
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return createResponse(validateText(localFileService.open(Path.of(path)), mode));
+        } catch (IOException | InvalidPathException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            if (e instanceof AccessDeniedException) {
+                response.put("error", "Access denied: " + e.getMessage());
+                return new ResponseEntity<>(response, HttpStatus.FORBIDDEN);
+            }
+            response.put("error", "Failed to read file: " + e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Validates a whole file's text in "split" or "script" mode
+     */
+    private List<SqlValidatorService.ValidationResult> validateText(CharSequence script, String mode) {
+        if ("script".equals(mode) || lexerSplitter) {
+            return validatorService.validateScript(script);
+        }
+        return validatorService.validateSpans(script, fileParserService.scan(script));
+    }
+
+    /**
+     * Validates the scripts of an archive in "split" or "script" mode
+     * @return Each script's results, by entry name
+     */
+    private Map<String, List<SqlValidatorService.ValidationResult>> validateArchive(Map<String, String> scripts, String mode) {
+        List<String> texts = List.copyOf(scripts.values());
+        List<List<SqlValidatorService.ValidationResult>> results;
+        if ("script".equals(mode) || lexerSplitter) {
+            results = validatorService.validateScripts(texts);
+        } else {
+            List<StatementSpans> spans = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                spans.add(fileParserService.scan(text));
+            }
+            results = validatorService.validateSpans(texts, spans);
+        }
+        Map<String, List<SqlValidatorService.ValidationResult>> byEntry = new LinkedHashMap<>();
+        int i = 0;
+        for (String name : scripts.keySet()) {
+            byEntry.put(name, results.get(i++));
+        }
+        return byEntry;
+    }
+
+    /**
+     * Endpoint to validate a single statement sent as the raw request body, read as it arrives instead
+     * of being held in memory; meant for statements too large for the other endpoints, such as a
+     * mysqldump extended INSERT. The result's query is only the start of the statement.
+     */
+    @PostMapping("/validate-stream")
+    public ResponseEntity<Map<String, Object>> validateStream(InputStream body) {
+        try {
+            SqlValidatorService.ValidationResult result = validatorService.validateStream(
+                    new InputStreamReader(body, StandardCharsets.UTF_8));
+            return createResponse(result != null ? List.of(result) : List.of());
+        } catch (IOException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "Failed to read request body: " + e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Validates the statements of a file as they are read, writing the response as the results come in
+     */
+    private void writePipelined(InputStream input, OutputStream out) throws IOException {
+        try (Stream<StatementIterator.Statement> statements = fileParserService.stream(input);
+             JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            long[] counts = new long[2];
+            json.writeStartObject();
+            json.writeArrayFieldStart("results");
+            String error = null;
+            try {
+                validatorService.validatePipelined(statements.iterator(), new SqlValidatorService.ResultWriter() {
+                    @Override
+                    public void write(SqlValidatorService.ValidationResult result) throws IOException {
+                        json.writeObject(createDetail(result));
+                        counts[0]++;
+                        if (result.isValid()) {
+                            counts[1]++;
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        json.flush();
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                error = "Failed to read file: " + e.getCause().getMessage();
+            }
+            json.writeEndArray();
+            json.writeBooleanField("success", error == null && counts[0] == counts[1]);
+            json.writeNumberField("totalQueries", counts[0]);
+            json.writeNumberField("validQueries", counts[1]);
+            if (error != null) {
+                json.writeStringField("error", error);
+            }
+            json.writeEndObject();
+        }
+    }
+
     private ResponseEntity<Map<String, Object>> createResponse(List<SqlValidatorService.ValidationResult> results) {
         Map<String, Object> response = new HashMap<>();
         boolean allValid = results.stream().allMatch(SqlValidatorService.ValidationResult::isValid);
@@ -62,20 +260,48 @@ public class SqlValidatorController {
         response.put("validQueries", results.stream().filter(SqlValidatorService.ValidationResult::isValid).count());
 
         List<Map<String, Object>> detailedResults = results.stream()
-                .map(result -> {
-                    Map<String, Object> detail = new HashMap<>();
-                    detail.put("lineNumber", result.getLineNumber());
-                    detail.put("query", result.getQuery());
-                    detail.put("valid", result.isValid());
-                    if (!result.isValid()) {
-                        detail.put("error", result.getError());
-                    }
-                    return detail;
-                })
+                .map(SqlValidatorController::createDetail)
                 .collect(Collectors.toList());
 
         response.put("results", detailedResults);
 
         return new ResponseEntity<>(response, allValid ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
     }
+
+    private ResponseEntity<Map<String, Object>> createArchiveResponse(
+            Map<String, List<SqlValidatorService.ValidationResult>> resultsByEntry) {
+        Map<String, Object> response = new HashMap<>();
+        Map<String, Object> files = new LinkedHashMap<>();
+        boolean allValid = true;
+        long total = 0;
+        long valid = 0;
+        for (Map.Entry<String, List<SqlValidatorService.ValidationResult>> entry : resultsByEntry.entrySet()) {
+            Map<String, Object> file = createResponse(entry.getValue()).getBody();
+            files.put(entry.getKey(), file);
+            allValid &= (Boolean) file.get("success");
+            total += entry.getValue().size();
+            valid += (Long) file.get("validQueries");
+        }
+
+        response.put("success", allValid);
+        response.put("totalQueries", total);
+        response.put("validQueries", valid);
+        response.put("files", files);
+
+        return new ResponseEntity<>(response, allValid ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
+    }
+
+    private static Map<String, Object> createDetail(SqlValidatorService.ValidationResult result) {
+        Map<String, Object> detail = new HashMap<>();
+        detail.put("lineNumber", result.getLineNumber());
+        detail.put("query", result.getQuery());
+        detail.put("valid", result.isValid());
+        if (!result.isValid()) {
+            detail.put("error", result.getError());
+        }
+        if (result.isBudgetExceeded()) {
+            detail.put("budgetExceeded", true);
+        }
+        return detail;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+
+/**
+ * A ParserATNSimulator that charges every lookahead symbol it simulates outside the DFA cache to a
+ * {@link ParseBudget.Meter}. Predictions answered from the DFA cost nothing; SLL misses and
+ * full-context retries, where pathological input spends its time, are charged per symbol.
+ */
+public class BudgetedParserATNSimulator extends ParserATNSimulator {
+
+    private final ParseBudget.Meter meter;
+
+    /**
+     * Creates a simulator sharing the DFA and prediction context caches of the parser's current one
+     */
+    public BudgetedParserATNSimulator(Parser parser, ParseBudget.Meter meter) {
+        super(parser, parser.getATN(), parser.getInterpreter().decisionToDFA,
+                parser.getInterpreter().getSharedContextCache());
+        this.meter = meter;
+    }
+
+    @Override
+    protected ATNConfigSet computeReachSet(ATNConfigSet closure, int t, boolean fullCtx) {
+        meter.chargePredictionStep();
+        return super.computeReachSet(closure, t, fullCtx);
+    }
+}
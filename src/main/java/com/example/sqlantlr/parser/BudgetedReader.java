@@ -0,0 +1,68 @@
+package com.example.sqlantlr.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A Reader that reads the one it wraps a block at a time and charges each block to a
+ * {@link ParseBudget.Meter}, so a streamed parse checks its time limit whenever it has waited for
+ * more text, however slowly the text arrives.
+ */
+public class BudgetedReader extends Reader {
+
+    private final Reader in;
+    private final ParseBudget.Meter meter;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    public BudgetedReader(Reader in, ParseBudget.Meter meter, int bufferSize) {
+        this.in = in;
+        this.meter = meter;
+        this.buffer = new char[bufferSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        int count = Math.min(length, limit - position);
+        System.arraycopy(buffer, position, chars, offset, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * @return Whether any text was read; false at the end of the text
+     */
+    private boolean fill() throws IOException {
+        int count;
+        do {
+            count = in.read(buffer, 0, buffer.length);
+        } while (count == 0);
+        if (count < 0) {
+            return false;
+        }
+        position = 0;
+        limit = count;
+        meter.chargeRead(count);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
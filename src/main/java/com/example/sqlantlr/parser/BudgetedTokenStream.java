@@ -0,0 +1,30 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.TokenSource;
+
+/**
+ * A CompactTokenStream that charges every token to a {@link ParseBudget.Meter} as it is lexed, and
+ * again as it is consumed; the meter counts each stream position once. Charging at lexing stops an
+ * over-long statement before all of it is lexed and held in memory.
+ */
+public class BudgetedTokenStream extends CompactTokenStream {
+
+    private final ParseBudget.Meter meter;
+
+    public BudgetedTokenStream(TokenSource tokenSource, ParseBudget.Meter meter) {
+        super(tokenSource);
+        this.meter = meter;
+    }
+
+    @Override
+    protected void fetch() {
+        meter.chargeToken(size());
+        super.fetch();
+    }
+
+    @Override
+    public void consume() {
+        meter.chargeToken(index());
+        super.consume();
+    }
+}
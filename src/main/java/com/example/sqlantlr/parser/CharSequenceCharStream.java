@@ -0,0 +1,162 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * A CharStream reading a range of a CharSequence in place, without the code point array that
+ * CharStreams.fromString builds.
+ *
+ * Symbols are Unicode code points, but indexes are UTF-16 offsets relative to the start of the
+ * range: a supplementary character advances the index by two. Token start/stop indexes therefore
+ * line up with the text, and getText(Interval) is a plain subSequence of it.
+ */
+public class CharSequenceCharStream implements CharStream {
+
+    private final CharSequence text;
+    private final int offset;
+    private final int length;
+
+    // End of the characters read, relative to offset; the whole range unless the stream is cut short
+    private int limit;
+
+    // Current position, relative to offset
+    private int position;
+
+    public CharSequenceCharStream(CharSequence text) {
+        this(text, 0, text.length());
+    }
+
+    /**
+     * @param text The text to read
+     * @param offset Start of the range to read
+     * @param length Length of the range, in chars
+     */
+    public CharSequenceCharStream(CharSequence text, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > text.length()) {
+            throw new IndexOutOfBoundsException("Range " + offset + "+" + length + " outside text of length " + text.length());
+        }
+        this.text = text;
+        this.offset = offset;
+        this.length = length;
+        this.limit = length;
+    }
+
+    /**
+     * Makes the stream end at the given index instead of at the end of its range, until set back
+     * @param limit Index the stream ends at, from the current position to the range length
+     */
+    void setLimit(int limit) {
+        this.limit = Math.min(Math.max(limit, position), length);
+    }
+
+    /**
+     * @return The text this stream reads a range of
+     */
+    CharSequence getSource() {
+        return text;
+    }
+
+    /**
+     * @return Start of the range in the text
+     */
+    int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void consume() {
+        if (position >= limit) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        char c = text.charAt(offset + position);
+        position += Character.isHighSurrogate(c) && position + 1 < limit
+                && Character.isLowSurrogate(text.charAt(offset + position + 1)) ? 2 : 1;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i > 0) {
+            int p = position;
+            for (int n = 1; n < i; n++) {
+                if (p >= limit) {
+                    return IntStream.EOF;
+                }
+                p += Character.charCount(codePointAt(p));
+            }
+            return p < limit ? codePointAt(p) : IntStream.EOF;
+        }
+        if (i < 0) {
+            int p = position;
+            for (int n = 0; n > i; n--) {
+                if (p <= 0) {
+                    return IntStream.EOF;
+                }
+                p--;
+                if (p > 0 && Character.isLowSurrogate(text.charAt(offset + p))
+                        && Character.isHighSurrogate(text.charAt(offset + p - 1))) {
+                    p--;
+                }
+            }
+            return codePointAt(p);
+        }
+        // LA(0) is undefined
+        return 0;
+    }
+
+    private int codePointAt(int p) {
+        char c = text.charAt(offset + p);
+        if (Character.isHighSurrogate(c) && p + 1 < limit) {
+            char low = text.charAt(offset + p + 1);
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(c, low);
+            }
+        }
+        return c;
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return position;
+    }
+
+    @Override
+    public void seek(int index) {
+        position = Math.min(Math.max(index, 0), limit);
+    }
+
+    @Override
+    public int size() {
+        return limit;
+    }
+
+    @Override
+    public String getSourceName() {
+        return UNKNOWN_SOURCE_NAME;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = Math.max(interval.a, 0);
+        int stop = Math.min(interval.b, length - 1);
+        if (start > stop) {
+            return "";
+        }
+        return text.subSequence(offset + start, offset + stop + 1).toString();
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, length - 1));
+    }
+}
@@ -0,0 +1,440 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+import java.util.Arrays;
+
+/**
+ * A token stream for validation that keeps the parser's tokens in parallel int arrays instead of
+ * a list of CommonToken objects. The arrays are split into fixed-size pages that are reused from
+ * one statement to the next.
+ *
+ * Only tokens on the default channel are kept; hidden and other off-channel tokens are dropped as
+ * they are lexed, so token indexes count parser-visible tokens only. Token objects are created
+ * on first access through LT/get and cached per index, and their text is read from the char
+ * stream when asked for. getText over a token range returns the source text between the first
+ * token's start and the last token's stop, or the end of the input when the range takes in EOF,
+ * which is what CommonTokenStream returns with the off-channel tokens covering the rest of the input.
+ *
+ * The token source should use a {@link #flyweightFactory()}, since every token it emits is copied
+ * into the arrays before the next one is lexed.
+ */
+public class CompactTokenStream implements TokenStream {
+
+    // Tokens are stored in fixed-size pages, so the buffer grows without copying
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // Pages beyond this many are dropped instead of reused when a new source is set
+    private static final int RETAINED_PAGES = 64;
+
+    private TokenSource tokenSource;
+
+    private Page[] pages = new Page[8];
+    private int size;
+    private boolean fetchedEOF;
+
+    // Index of the current token
+    private int p;
+
+    public CompactTokenStream(TokenSource tokenSource) {
+        setTokenSource(tokenSource);
+    }
+
+    /**
+     * Resets the stream to read from a new source
+     */
+    public void setTokenSource(TokenSource tokenSource) {
+        this.tokenSource = tokenSource;
+        int used = (size + PAGE_MASK) >> PAGE_SHIFT;
+        for (int i = 0; i < used; i++) {
+            if (i < RETAINED_PAGES) {
+                Arrays.fill(pages[i].tokens, 0, Math.min(PAGE_SIZE, size - (i << PAGE_SHIFT)), null);
+            } else {
+                pages[i] = null;
+            }
+        }
+        size = 0;
+        fetchedEOF = false;
+        p = 0;
+    }
+
+    /**
+     * @return A token factory that reuses one token object for everything a lexer emits; tokens
+     * conjured by error recovery, which have no source range, are still created as CommonTokens
+     */
+    public static TokenFactory<CommonToken> flyweightFactory() {
+        return new FlyweightTokenFactory();
+    }
+
+    /**
+     * Lexes the rest of the input
+     */
+    public void fill() {
+        while (!fetchedEOF) {
+            fetch();
+        }
+    }
+
+    /**
+     * Drops ranges of tokens, moving the later ones down; the stream must be fully lexed and not read yet
+     * @param ranges Pairs of [from, to) token indexes in increasing order, in its first count elements
+     */
+    public void removeRanges(int[] ranges, int count) {
+        int write = ranges[0];
+        for (int r = 0; r < count; r += 2) {
+            int end = r + 2 < count ? ranges[r + 2] : size;
+            copy(ranges[r + 1], write, end - ranges[r + 1]);
+            write += end - ranges[r + 1];
+        }
+        for (int index = ranges[0]; index < size; index++) {
+            pages[index >> PAGE_SHIFT].tokens[index & PAGE_MASK] = null;
+        }
+        size = write;
+        p = 0;
+    }
+
+    /**
+     * Copies the fields of length tokens from index from down to index to, page by page
+     */
+    private void copy(int from, int to, int length) {
+        while (length > 0) {
+            int fromSlot = from & PAGE_MASK;
+            int toSlot = to & PAGE_MASK;
+            int run = Math.min(length, PAGE_SIZE - Math.max(fromSlot, toSlot));
+            Page source = pages[from >> PAGE_SHIFT];
+            Page target = pages[to >> PAGE_SHIFT];
+            System.arraycopy(source.types, fromSlot, target.types, toSlot, run);
+            System.arraycopy(source.starts, fromSlot, target.starts, toSlot, run);
+            System.arraycopy(source.stops, fromSlot, target.stops, toSlot, run);
+            System.arraycopy(source.lines, fromSlot, target.lines, toSlot, run);
+            System.arraycopy(source.columns, fromSlot, target.columns, toSlot, run);
+            from += run;
+            to += run;
+            length -= run;
+        }
+    }
+
+    /**
+     * @return The type of the token at the given index, without creating a token object
+     */
+    public int getType(int index) {
+        sync(index);
+        index = Math.min(index, size - 1);
+        return pages[index >> PAGE_SHIFT].types[index & PAGE_MASK];
+    }
+
+    /**
+     * @return The start char index of the token at the given index, without creating a token object
+     */
+    public int getStartIndex(int index) {
+        sync(index);
+        index = Math.min(index, size - 1);
+        return pages[index >> PAGE_SHIFT].starts[index & PAGE_MASK];
+    }
+
+    private void sync(int index) {
+        while (index >= size && !fetchedEOF) {
+            fetch();
+        }
+    }
+
+    /**
+     * Reads the next default-channel token, or EOF, from the token source into position size()
+     */
+    protected void fetch() {
+        Token token;
+        do {
+            token = tokenSource.nextToken();
+        } while (token.getChannel() != Token.DEFAULT_CHANNEL && token.getType() != Token.EOF);
+
+        int slot = size & PAGE_MASK;
+        Page page = page(size >> PAGE_SHIFT);
+        page.types[slot] = token.getType();
+        page.starts[slot] = token.getStartIndex();
+        page.stops[slot] = token.getStopIndex();
+        page.lines[slot] = token.getLine();
+        page.columns[slot] = token.getCharPositionInLine();
+        size++;
+        if (token.getType() == Token.EOF) {
+            fetchedEOF = true;
+        }
+    }
+
+    private Page page(int number) {
+        if (number == pages.length) {
+            pages = Arrays.copyOf(pages, number * 2);
+        }
+        Page page = pages[number];
+        if (page == null) {
+            page = new Page();
+            pages[number] = page;
+        }
+        return page;
+    }
+
+    @Override
+    public void consume() {
+        if (LA(1) == EOF) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        p++;
+        sync(p);
+    }
+
+    @Override
+    public int LA(int i) {
+        int index = p + i - (i > 0 ? 1 : 0);
+        if (i == 0 || index < 0) {
+            return i == 0 ? 0 : Token.INVALID_TYPE;
+        }
+        return getType(index);
+    }
+
+    @Override
+    public Token LT(int k) {
+        if (k == 0) {
+            return null;
+        }
+        int index = p + k - (k > 0 ? 1 : 0);
+        if (index < 0) {
+            return null;
+        }
+        sync(index);
+        return get(Math.min(index, size - 1));
+    }
+
+    @Override
+    public Token get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("token index " + index + " out of range 0.." + (size - 1));
+        }
+        Page page = pages[index >> PAGE_SHIFT];
+        Token token = page.tokens[index & PAGE_MASK];
+        if (token == null) {
+            token = new CompactToken(page, index);
+            page.tokens[index & PAGE_MASK] = token;
+        }
+        return token;
+    }
+
+    @Override
+    public int mark() {
+        return 0;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return p;
+    }
+
+    @Override
+    public void seek(int index) {
+        sync(index);
+        p = Math.min(index, size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return tokenSource.getSourceName();
+    }
+
+    @Override
+    public TokenSource getTokenSource() {
+        return tokenSource;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = interval.b;
+        if (start < 0 || stop < 0) {
+            return "";
+        }
+        sync(stop);
+        stop = Math.min(stop, size - 1);
+        if (start > stop) {
+            return "";
+        }
+        int startChar = pages[start >> PAGE_SHIFT].starts[start & PAGE_MASK];
+        int stopChar;
+        if (getType(stop) == Token.EOF) {
+            // EOF contributes no text, but CommonTokenStream keeps the hidden tokens before it, so the
+            // text runs on to the end of the input, through any trailing whitespace and comments
+            stopChar = getStartIndex(stop) - 1;
+        } else {
+            stopChar = pages[stop >> PAGE_SHIFT].stops[stop & PAGE_MASK];
+        }
+        if (startChar > stopChar) {
+            return "";
+        }
+        return tokenSource.getInputStream().getText(Interval.of(startChar, stopChar));
+    }
+
+    /**
+     * @return The whole input, including whitespace and comments before the first token, as
+     * CommonTokenStream returns it
+     */
+    @Override
+    public String getText() {
+        fill();
+        int endChar = getStartIndex(size - 1);
+        return endChar > 0 ? tokenSource.getInputStream().getText(Interval.of(0, endChar - 1)) : "";
+    }
+
+    @Override
+    public String getText(RuleContext ctx) {
+        return getText(ctx.getSourceInterval());
+    }
+
+    @Override
+    public String getText(Token start, Token stop) {
+        if (start == null || stop == null) {
+            return "";
+        }
+        return getText(Interval.of(start.getTokenIndex(), stop.getTokenIndex()));
+    }
+
+    /**
+     * Fields of PAGE_SIZE consecutive tokens
+     */
+    private static final class Page {
+        final int[] types = new int[PAGE_SIZE];
+        final int[] starts = new int[PAGE_SIZE];
+        final int[] stops = new int[PAGE_SIZE];
+        final int[] lines = new int[PAGE_SIZE];
+        final int[] columns = new int[PAGE_SIZE];
+        final Token[] tokens = new Token[PAGE_SIZE];
+    }
+
+    /**
+     * A token reading its fields from a page of this stream
+     */
+    private final class CompactToken implements Token {
+        private final Page page;
+        private final int index;
+        private final int slot;
+
+        CompactToken(Page page, int index) {
+            this.page = page;
+            this.index = index;
+            this.slot = index & PAGE_MASK;
+        }
+
+        @Override
+        public String getText() {
+            CharStream input = getInputStream();
+            if (input == null) {
+                return null;
+            }
+            int n = input.size();
+            if (getStartIndex() < n && getStopIndex() < n) {
+                return input.getText(Interval.of(getStartIndex(), getStopIndex()));
+            }
+            return "<EOF>";
+        }
+
+        @Override
+        public int getType() {
+            return page.types[slot];
+        }
+
+        @Override
+        public int getLine() {
+            return page.lines[slot];
+        }
+
+        @Override
+        public int getCharPositionInLine() {
+            return page.columns[slot];
+        }
+
+        @Override
+        public int getChannel() {
+            return DEFAULT_CHANNEL;
+        }
+
+        @Override
+        public int getTokenIndex() {
+            return index;
+        }
+
+        @Override
+        public int getStartIndex() {
+            return page.starts[slot];
+        }
+
+        @Override
+        public int getStopIndex() {
+            return page.stops[slot];
+        }
+
+        @Override
+        public TokenSource getTokenSource() {
+            return tokenSource;
+        }
+
+        @Override
+        public CharStream getInputStream() {
+            return tokenSource.getInputStream();
+        }
+
+        @Override
+        public String toString() {
+            return "[@" + index + "," + getStartIndex() + ":" + getStopIndex() + "='" + getText() + "',<" + getType() + ">,"
+                    + getLine() + ":" + getCharPositionInLine() + "]";
+        }
+    }
+
+    /**
+     * Reuses one CommonToken per token source for everything the lexer emits
+     */
+    private static final class FlyweightTokenFactory implements TokenFactory<CommonToken> {
+        private Pair<TokenSource, CharStream> source;
+        private CommonToken token;
+
+        @Override
+        public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel,
+                                  int start, int stop, int line, int charPositionInLine) {
+            // Tokens conjured by error recovery have no range, and may be kept by the parser
+            if (start < 0 || text != null) {
+                return CommonTokenFactory.DEFAULT.create(source, type, text, channel, start, stop, line, charPositionInLine);
+            }
+            if (token == null || this.source != source) {
+                this.source = source;
+                token = new CommonToken(source, type, channel, start, stop);
+            }
+            token.setType(type);
+            token.setChannel(channel);
+            token.setStartIndex(start);
+            token.setStopIndex(stop);
+            token.setLine(line);
+            token.setCharPositionInLine(charPositionInLine);
+            return token;
+        }
+
+        @Override
+        public CommonToken create(int type, String text) {
+            return CommonTokenFactory.DEFAULT.create(type, text);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.sqlantlr.parser;
+
+import com.sql.validator.MariaDBLexer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+
+import java.util.Arrays;
+
+/**
+ * A TokenSource over a ValidationLexer that applies the mysql client's DELIMITER command, so a
+ * script written for the client lexes into statements the parser can take as they are.
+ *
+ * A DELIMITER command at the start of a statement sets the delimiter to the word following it on
+ * the same line; the command itself produces no tokens. While the delimiter is not ';', each
+ * occurrence of it outside quotes and comments becomes a single SEMI token spanning its
+ * characters, and ';' is an ordinary token that only ends statements inside a compound body. A
+ * delimiter glued to the end of a word, as in END$$, would otherwise lex as part of the word, so
+ * the text before it is lexed again with the input cut short at the delimiter.
+ *
+ * The lexer must read a {@link CharSequenceCharStream}.
+ */
+public class DelimiterTokenSource implements TokenSource {
+
+    private final ValidationLexer lexer;
+    private final CommonToken delimiterToken = new CommonToken(MariaDBLexer.SEMI);
+
+    private String delimiter;
+    private boolean statementStart;
+
+    // Char index the input is cut short at while the text before a delimiter is lexed again, or -1
+    private int cut;
+
+    // Start of each SEMI token standing for a delimiter, in input order
+    private int[] delimiterStarts = new int[16];
+    private int delimiterCount;
+
+    // End of each DELIMITER command, and whether it set a delimiter other than ';'
+    private int[] commandEnds = new int[4];
+    private boolean[] commandCustom = new boolean[4];
+    private int commandCount;
+
+    public DelimiterTokenSource(ValidationLexer lexer) {
+        this.lexer = lexer;
+        reset();
+    }
+
+    /**
+     * Starts over with the ';' delimiter; called whenever the lexer is given new input
+     */
+    public void reset() {
+        delimiter = ";";
+        statementStart = true;
+        cut = -1;
+        delimiterCount = 0;
+        commandCount = 0;
+    }
+
+    /**
+     * @return Whether the SEMI token starting at the given char index stands for a delimiter set by DELIMITER
+     */
+    public boolean isDelimiter(int startIndex) {
+        return Arrays.binarySearch(delimiterStarts, 0, delimiterCount, startIndex) >= 0;
+    }
+
+    /**
+     * @return Whether a delimiter other than ';' is in effect at the given char index
+     */
+    public boolean isCustomDelimiter(int index) {
+        int command = Arrays.binarySearch(commandEnds, 0, commandCount, index);
+        if (command < 0) {
+            command = -command - 2;
+        }
+        return command >= 0 && commandCustom[command];
+    }
+
+    @Override
+    public Token nextToken() {
+        while (true) {
+            Token token = lexer.nextToken();
+            if (cut >= 0) {
+                if (token.getType() != Token.EOF) {
+                    return token;
+                }
+                // The text before the delimiter is lexed; the delimiter follows
+                input().setLimit(Integer.MAX_VALUE);
+                lexer._hitEOF = false;
+                return delimiter(cut);
+            }
+            if (token.getType() == Token.EOF || token.getChannel() != Token.DEFAULT_CHANNEL) {
+                return token;
+            }
+            if (statementStart && token.getType() == MariaDBLexer.DELIMITER && readDelimiter(token)) {
+                continue;
+            }
+            if (!delimiter.equals(";")) {
+                int start = findDelimiter(token);
+                if (start == token.getStartIndex()) {
+                    moveTo(start, token.getLine(), token.getCharPositionInLine());
+                    return delimiter(start);
+                }
+                if (start > token.getStartIndex()) {
+                    // Lex the text before the delimiter again on its own
+                    moveTo(token.getStartIndex(), token.getLine(), token.getCharPositionInLine());
+                    input().setLimit(start);
+                    cut = start;
+                    continue;
+                }
+            }
+            statementStart = token.getType() == MariaDBLexer.SEMI;
+            return token;
+        }
+    }
+
+    /**
+     * Reads the word after a DELIMITER token as the new delimiter, leaving the lexer after it
+     * @return Whether the token starts a DELIMITER command, which it does only when a word follows on its line
+     */
+    private boolean readDelimiter(Token token) {
+        CharSequenceCharStream input = input();
+        CharSequence text = input.getSource();
+        int offset = input.getOffset();
+        int end = input.size();
+        int start = token.getStopIndex() + 1;
+        while (start < end && (text.charAt(offset + start) == ' ' || text.charAt(offset + start) == '\t')) {
+            start++;
+        }
+        int stop = start;
+        while (stop < end && !Character.isWhitespace(text.charAt(offset + stop))) {
+            stop++;
+        }
+        if (stop == start) {
+            return false;
+        }
+        delimiter = text.subSequence(offset + start, offset + stop).toString();
+        if (commandCount == commandEnds.length) {
+            commandEnds = Arrays.copyOf(commandEnds, commandCount * 2);
+            commandCustom = Arrays.copyOf(commandCustom, commandCount * 2);
+        }
+        commandEnds[commandCount] = stop;
+        commandCustom[commandCount++] = !delimiter.equals(";");
+        moveTo(stop, token.getLine(), token.getCharPositionInLine()
+                + Character.codePointCount(text, offset + token.getStartIndex(), offset + stop));
+        return true;
+    }
+
+    /**
+     * @return Char index of the first delimiter starting within the token, or -1 if there is none or
+     * the token is quoted, since a delimiter inside quotes does not count
+     */
+    private int findDelimiter(Token token) {
+        CharSequenceCharStream input = input();
+        CharSequence text = input.getSource();
+        int offset = input.getOffset();
+        int end = input.size();
+        for (int i = token.getStartIndex(); i <= token.getStopIndex(); i++) {
+            char c = text.charAt(offset + i);
+            if (c == '\'' || c == '"' || c == '`') {
+                return -1;
+            }
+            if (i + delimiter.length() <= end && regionMatches(text, offset + i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(CharSequence text, int index) {
+        for (int i = 0; i < delimiter.length(); i++) {
+            if (text.charAt(index + i) != delimiter.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return A SEMI token for the delimiter at start, where the lexer is, leaving the lexer after it
+     */
+    private Token delimiter(int start) {
+        LexerATNSimulator interpreter = lexer.getInterpreter();
+        int stop = start + delimiter.length() - 1;
+        delimiterToken.setStartIndex(start);
+        delimiterToken.setStopIndex(stop);
+        delimiterToken.setLine(interpreter.getLine());
+        delimiterToken.setCharPositionInLine(interpreter.getCharPositionInLine());
+        moveTo(stop + 1, interpreter.getLine(),
+                interpreter.getCharPositionInLine() + delimiter.codePointCount(0, delimiter.length()));
+
+        if (delimiterCount == delimiterStarts.length) {
+            delimiterStarts = Arrays.copyOf(delimiterStarts, delimiterCount * 2);
+        }
+        delimiterStarts[delimiterCount++] = start;
+        cut = -1;
+        statementStart = true;
+        return delimiterToken;
+    }
+
+    private void moveTo(int index, int line, int charPositionInLine) {
+        input().seek(index);
+        lexer.getInterpreter().setLine(line);
+        lexer.getInterpreter().setCharPositionInLine(charPositionInLine);
+    }
+
+    private CharSequenceCharStream input() {
+        return (CharSequenceCharStream) lexer.getInputStream();
+    }
+
+    @Override
+    public int getLine() {
+        return lexer.getLine();
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return lexer.getCharPositionInLine();
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return lexer.getInputStream();
+    }
+
+    @Override
+    public String getSourceName() {
+        return lexer.getSourceName();
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory<?> factory) {
+        lexer.setTokenFactory(factory);
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        return lexer.getTokenFactory();
+    }
+}
@@ -0,0 +1,693 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.RuntimeMetaData;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNConfig;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ATNSimulator;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.ArrayPredictionContext;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.EmptyPredictionContext;
+import org.antlr.v4.runtime.atn.LexerATNConfig;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.LexerAction;
+import org.antlr.v4.runtime.atn.LexerActionExecutor;
+import org.antlr.v4.runtime.atn.LexerIndexedCustomAction;
+import org.antlr.v4.runtime.atn.OrderedATNConfigSet;
+import org.antlr.v4.runtime.atn.PredictionContext;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.SemanticContext;
+import org.antlr.v4.runtime.atn.SingletonPredictionContext;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves the DFA states a lexer/parser pair has learned to a file, and loads them back into the
+ * shared decisionToDFA arrays of a fresh process.
+ *
+ * The file is tagged with a fingerprint of both serialized ATNs and the ANTLR runtime version;
+ * a snapshot written for a different grammar or runtime is ignored on load.
+ */
+public final class DfaSnapshot {
+
+    private static final int MAGIC = 0x44464153; // "DFAS"
+    private static final int FORMAT_VERSION = 1;
+
+    // Edge and start-state markers
+    private static final int NO_STATE = -1;
+    private static final int ERROR_STATE = -2;
+
+    // PredictionContext kinds
+    private static final byte CONTEXT_EMPTY = 0;
+    private static final byte CONTEXT_SINGLETON = 1;
+    private static final byte CONTEXT_ARRAY = 2;
+
+    // SemanticContext kinds
+    private static final byte SEMANTIC_NONE = 0;
+    private static final byte SEMANTIC_PREDICATE = 1;
+    private static final byte SEMANTIC_PRECEDENCE = 2;
+    private static final byte SEMANTIC_AND = 3;
+    private static final byte SEMANTIC_OR = 4;
+
+    // DFA start-state kinds
+    private static final byte START_NONE = 0;
+    private static final byte START_STATE = 1;
+    private static final byte START_PRECEDENCE = 2;
+
+    private DfaSnapshot() {
+    }
+
+    /**
+     * @return A hash identifying the grammars and runtime a snapshot is valid for
+     */
+    public static String fingerprint(Recognizer<?, ?>... recognizers) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(RuntimeMetaData.VERSION.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) FORMAT_VERSION);
+            for (Recognizer<?, ?> recognizer : recognizers) {
+                digest.update(recognizer.getSerializedATN().getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Writes the current lexer and parser DFA states to a file, replacing it atomically
+     *
+     * @return The number of DFA states written
+     * @throws IOException If the file cannot be written
+     */
+    public static int save(Path file, Lexer lexer, Parser parser) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int written;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(fingerprint(lexer, parser));
+            written = new Writer(out, lexer.getATN(), lexerDfas(lexer), true).write();
+            written += new Writer(out, parser.getATN(), parser.getInterpreter().decisionToDFA, false).write();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    /**
+     * Loads a snapshot into the lexer and parser DFAs. Decisions that already hold states are
+     * left untouched, so this is meant to run before the first parse.
+     *
+     * @return The number of DFA states loaded, or -1 if the snapshot was written for other grammars
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    public static int load(Path file, Lexer lexer, Parser parser) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a DFA snapshot: " + file);
+            }
+            if (!in.readUTF().equals(fingerprint(lexer, parser))) {
+                return -1;
+            }
+            int loaded = new Reader(in, lexer.getATN(), lexerDfas(lexer), null, true).read();
+            loaded += new Reader(in, parser.getATN(), parser.getInterpreter().decisionToDFA,
+                    parser.getInterpreter().getSharedContextCache(), false).read();
+            return loaded;
+        }
+    }
+
+    private static DFA[] lexerDfas(Lexer lexer) {
+        return ((LexerATNSimulator) lexer.getInterpreter()).decisionToDFA;
+    }
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final DFA[] dfas;
+        private final boolean lexer;
+
+        private final Map<PredictionContext, Integer> contextIds = new IdentityHashMap<>();
+        private final List<PredictionContext> contexts = new ArrayList<>();
+        private final Map<SemanticContext, Integer> semanticIds = new IdentityHashMap<>();
+        private final List<SemanticContext> semantics = new ArrayList<>();
+        private final Map<LexerActionExecutor, Integer> executorIds = new IdentityHashMap<>();
+        private final List<LexerActionExecutor> executors = new ArrayList<>();
+        private final Map<LexerAction, Integer> actionIds = new HashMap<>();
+
+        Writer(DataOutputStream out, ATN atn, DFA[] dfas, boolean lexer) {
+            this.out = out;
+            this.dfas = dfas;
+            this.lexer = lexer;
+            if (atn.lexerActions != null) {
+                for (int i = 0; i < atn.lexerActions.length; i++) {
+                    actionIds.putIfAbsent(atn.lexerActions[i], i);
+                }
+            }
+        }
+
+        int write() throws IOException {
+            // Take a consistent list of states per decision; parsing may continue concurrently
+            List<List<DFAState>> statesPerDfa = new ArrayList<>(dfas.length);
+            for (DFA dfa : dfas) {
+                List<DFAState> states;
+                synchronized (dfa.states) {
+                    states = dfa.getStates();
+                }
+                statesPerDfa.add(states);
+                for (DFAState state : states) {
+                    collect(state);
+                }
+            }
+
+            writeContexts();
+            writeSemantics();
+            writeExecutors();
+
+            int written = 0;
+            out.writeInt(dfas.length);
+            for (int d = 0; d < dfas.length; d++) {
+                written += writeDfa(dfas[d], statesPerDfa.get(d));
+            }
+            return written;
+        }
+
+        private void collect(DFAState state) throws IOException {
+            for (ATNConfig config : state.configs) {
+                collectContext(config.context);
+                collectSemantic(config.semanticContext);
+                if (lexer) {
+                    collectExecutor(((LexerATNConfig) config).getLexerActionExecutor());
+                }
+            }
+            if (state.predicates != null) {
+                for (DFAState.PredPrediction prediction : state.predicates) {
+                    collectSemantic(prediction.pred);
+                }
+            }
+            collectExecutor(state.lexerActionExecutor);
+        }
+
+        // Contexts and semantic contexts are numbered children-first so the reader can build them bottom-up
+
+        private void collectContext(PredictionContext context) {
+            if (context == null || contextIds.containsKey(context)) {
+                return;
+            }
+            for (int i = 0; i < context.size(); i++) {
+                collectContext(context.getParent(i));
+            }
+            contextIds.put(context, contexts.size());
+            contexts.add(context);
+        }
+
+        private void collectSemantic(SemanticContext semantic) {
+            if (semanticIds.containsKey(semantic)) {
+                return;
+            }
+            if (semantic instanceof SemanticContext.Operator) {
+                for (SemanticContext operand : ((SemanticContext.Operator) semantic).getOperands()) {
+                    collectSemantic(operand);
+                }
+            }
+            semanticIds.put(semantic, semantics.size());
+            semantics.add(semantic);
+        }
+
+        private void collectExecutor(LexerActionExecutor executor) throws IOException {
+            if (executor == null || executorIds.containsKey(executor)) {
+                return;
+            }
+            for (LexerAction action : executor.getLexerActions()) {
+                LexerAction target = action instanceof LexerIndexedCustomAction
+                        ? ((LexerIndexedCustomAction) action).getAction() : action;
+                if (!actionIds.containsKey(target)) {
+                    throw new IOException("Lexer action not found in the ATN: " + action);
+                }
+            }
+            executorIds.put(executor, executors.size());
+            executors.add(executor);
+        }
+
+        private void writeContexts() throws IOException {
+            out.writeInt(contexts.size());
+            for (PredictionContext context : contexts) {
+                if (context instanceof EmptyPredictionContext) {
+                    out.writeByte(CONTEXT_EMPTY);
+                } else if (context instanceof SingletonPredictionContext) {
+                    out.writeByte(CONTEXT_SINGLETON);
+                    out.writeInt(contextId(context.getParent(0)));
+                    out.writeInt(context.getReturnState(0));
+                } else {
+                    out.writeByte(CONTEXT_ARRAY);
+                    out.writeInt(context.size());
+                    for (int i = 0; i < context.size(); i++) {
+                        out.writeInt(contextId(context.getParent(i)));
+                        out.writeInt(context.getReturnState(i));
+                    }
+                }
+            }
+        }
+
+        private void writeSemantics() throws IOException {
+            out.writeInt(semantics.size());
+            for (SemanticContext semantic : semantics) {
+                if (semantic instanceof SemanticContext.Predicate) {
+                    SemanticContext.Predicate predicate = (SemanticContext.Predicate) semantic;
+                    out.writeByte(SEMANTIC_PREDICATE);
+                    out.writeInt(predicate.ruleIndex);
+                    out.writeInt(predicate.predIndex);
+                    out.writeBoolean(predicate.isCtxDependent);
+                } else if (semantic instanceof SemanticContext.PrecedencePredicate) {
+                    out.writeByte(SEMANTIC_PRECEDENCE);
+                    out.writeInt(((SemanticContext.PrecedencePredicate) semantic).precedence);
+                } else if (semantic instanceof SemanticContext.Operator) {
+                    out.writeByte(semantic instanceof SemanticContext.AND ? SEMANTIC_AND : SEMANTIC_OR);
+                    List<SemanticContext> operands = new ArrayList<>(((SemanticContext.Operator) semantic).getOperands());
+                    out.writeInt(operands.size());
+                    for (SemanticContext operand : operands) {
+                        out.writeInt(semanticIds.get(operand));
+                    }
+                } else {
+                    out.writeByte(SEMANTIC_NONE);
+                }
+            }
+        }
+
+        private void writeExecutors() throws IOException {
+            out.writeInt(executors.size());
+            for (LexerActionExecutor executor : executors) {
+                LexerAction[] actions = executor.getLexerActions();
+                out.writeInt(actions.length);
+                for (LexerAction action : actions) {
+                    if (action instanceof LexerIndexedCustomAction) {
+                        LexerIndexedCustomAction indexed = (LexerIndexedCustomAction) action;
+                        out.writeBoolean(true);
+                        out.writeInt(indexed.getOffset());
+                        out.writeInt(actionIds.get(indexed.getAction()));
+                    } else {
+                        out.writeBoolean(false);
+                        out.writeInt(actionIds.get(action));
+                    }
+                }
+            }
+        }
+
+        private int writeDfa(DFA dfa, List<DFAState> states) throws IOException {
+            Map<DFAState, Integer> stateIds = new IdentityHashMap<>();
+            for (DFAState state : states) {
+                stateIds.put(state, stateIds.size());
+            }
+
+            out.writeInt(states.size());
+            for (DFAState state : states) {
+                ATNConfigSet configs = state.configs;
+                out.writeBoolean(configs.fullCtx);
+                out.writeInt(configs.uniqueAlt);
+                out.writeBoolean(configs.hasSemanticContext);
+                out.writeBoolean(configs.dipsIntoOuterContext);
+                out.writeInt(configs.size());
+                for (ATNConfig config : configs) {
+                    out.writeInt(config.state.stateNumber);
+                    out.writeInt(config.alt);
+                    out.writeInt(contextId(config.context));
+                    out.writeInt(semanticIds.get(config.semanticContext));
+                    out.writeInt(config.reachesIntoOuterContext);
+                    if (lexer) {
+                        LexerATNConfig lexerConfig = (LexerATNConfig) config;
+                        out.writeBoolean(lexerConfig.hasPassedThroughNonGreedyDecision());
+                        out.writeInt(executorId(lexerConfig.getLexerActionExecutor()));
+                    }
+                }
+
+                out.writeBoolean(state.isAcceptState);
+                out.writeInt(state.prediction);
+                out.writeBoolean(state.requiresFullContext);
+                out.writeInt(executorId(state.lexerActionExecutor));
+                if (state.predicates == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(state.predicates.length);
+                    for (DFAState.PredPrediction prediction : state.predicates) {
+                        out.writeInt(semanticIds.get(prediction.pred));
+                        out.writeInt(prediction.alt);
+                    }
+                }
+            }
+
+            // Edges go last so every target state already exists when the reader links them
+            for (DFAState state : states) {
+                writeEdges(state.edges, stateIds);
+            }
+
+            DFAState s0 = dfa.s0;
+            if (dfa.isPrecedenceDfa()) {
+                out.writeByte(START_PRECEDENCE);
+                writeEdges(s0.edges, stateIds);
+            } else if (s0 != null && stateIds.containsKey(s0)) {
+                out.writeByte(START_STATE);
+                out.writeInt(stateIds.get(s0));
+            } else {
+                out.writeByte(START_NONE);
+            }
+            return states.size();
+        }
+
+        private void writeEdges(DFAState[] edges, Map<DFAState, Integer> stateIds) throws IOException {
+            if (edges == null) {
+                out.writeInt(-1);
+                return;
+            }
+            DFAState[] copy = edges.clone();
+            int count = 0;
+            for (DFAState target : copy) {
+                if (target != null && (target == ATNSimulator.ERROR || stateIds.containsKey(target))) {
+                    count++;
+                }
+            }
+            out.writeInt(copy.length);
+            out.writeInt(count);
+            for (int i = 0; i < copy.length; i++) {
+                DFAState target = copy[i];
+                if (target == null) {
+                    continue;
+                }
+                // ATNSimulator.ERROR is shared by all DFAs and never stored in a state map
+                if (target == ATNSimulator.ERROR) {
+                    out.writeInt(i);
+                    out.writeInt(ERROR_STATE);
+                } else if (stateIds.containsKey(target)) {
+                    out.writeInt(i);
+                    out.writeInt(stateIds.get(target));
+                }
+            }
+        }
+
+        private int contextId(PredictionContext context) {
+            return context == null ? -1 : contextIds.get(context);
+        }
+
+        private int executorId(LexerActionExecutor executor) {
+            return executor == null ? -1 : executorIds.get(executor);
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final ATN atn;
+        private final DFA[] dfas;
+        private final PredictionContextCache contextCache;
+        private final boolean lexer;
+
+        private PredictionContext[] contexts;
+        private SemanticContext[] semantics;
+        private LexerActionExecutor[] executors;
+
+        Reader(DataInputStream in, ATN atn, DFA[] dfas, PredictionContextCache contextCache, boolean lexer) {
+            this.in = in;
+            this.atn = atn;
+            this.dfas = dfas;
+            this.contextCache = contextCache;
+            this.lexer = lexer;
+        }
+
+        int read() throws IOException {
+            readContexts();
+            readSemantics();
+            readExecutors();
+
+            int dfaCount = in.readInt();
+            if (dfaCount != dfas.length) {
+                throw new IOException("Snapshot has " + dfaCount + " decisions, expected " + dfas.length);
+            }
+            int loaded = 0;
+            for (DFA dfa : dfas) {
+                loaded += readDfa(dfa);
+            }
+            return loaded;
+        }
+
+        private void readContexts() throws IOException {
+            contexts = new PredictionContext[in.readInt()];
+            for (int i = 0; i < contexts.length; i++) {
+                byte kind = in.readByte();
+                PredictionContext context;
+                if (kind == CONTEXT_EMPTY) {
+                    context = EmptyPredictionContext.Instance;
+                } else if (kind == CONTEXT_SINGLETON) {
+                    PredictionContext parent = context(in.readInt());
+                    context = SingletonPredictionContext.create(parent, in.readInt());
+                } else {
+                    int size = in.readInt();
+                    PredictionContext[] parents = new PredictionContext[size];
+                    int[] returnStates = new int[size];
+                    for (int j = 0; j < size; j++) {
+                        parents[j] = context(in.readInt());
+                        returnStates[j] = in.readInt();
+                    }
+                    context = new ArrayPredictionContext(parents, returnStates);
+                }
+                if (contextCache != null) {
+                    synchronized (contextCache) {
+                        context = contextCache.add(context);
+                    }
+                }
+                contexts[i] = context;
+            }
+        }
+
+        private void readSemantics() throws IOException {
+            semantics = new SemanticContext[in.readInt()];
+            for (int i = 0; i < semantics.length; i++) {
+                byte kind = in.readByte();
+                switch (kind) {
+                    case SEMANTIC_PREDICATE:
+                        semantics[i] = new SemanticContext.Predicate(in.readInt(), in.readInt(), in.readBoolean());
+                        break;
+                    case SEMANTIC_PRECEDENCE:
+                        semantics[i] = new SemanticContext.PrecedencePredicate(in.readInt());
+                        break;
+                    case SEMANTIC_AND:
+                    case SEMANTIC_OR:
+                        int count = in.readInt();
+                        SemanticContext combined = semantics[in.readInt()];
+                        for (int j = 1; j < count; j++) {
+                            SemanticContext operand = semantics[in.readInt()];
+                            combined = kind == SEMANTIC_AND
+                                    ? new SemanticContext.AND(combined, operand)
+                                    : new SemanticContext.OR(combined, operand);
+                        }
+                        semantics[i] = combined;
+                        break;
+                    default:
+                        semantics[i] = SemanticContext.Empty.Instance;
+                }
+            }
+        }
+
+        private void readExecutors() throws IOException {
+            executors = new LexerActionExecutor[in.readInt()];
+            for (int i = 0; i < executors.length; i++) {
+                LexerAction[] actions = new LexerAction[in.readInt()];
+                for (int j = 0; j < actions.length; j++) {
+                    if (in.readBoolean()) {
+                        int offset = in.readInt();
+                        actions[j] = new LexerIndexedCustomAction(offset, atn.lexerActions[in.readInt()]);
+                    } else {
+                        actions[j] = atn.lexerActions[in.readInt()];
+                    }
+                }
+                executors[i] = new LexerActionExecutor(actions);
+            }
+        }
+
+        private int readDfa(DFA dfa) throws IOException {
+            DFAState[] states = new DFAState[in.readInt()];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = readState();
+            }
+            int[][] edges = new int[states.length][];
+            for (int i = 0; i < states.length; i++) {
+                edges[i] = readEdges();
+            }
+            byte startKind = in.readByte();
+            int start = startKind == START_STATE ? in.readInt() : NO_STATE;
+            int[] precedenceEdges = startKind == START_PRECEDENCE ? readEdges() : null;
+
+            synchronized (dfa.states) {
+                boolean empty = dfa.states.isEmpty()
+                        && (dfa.isPrecedenceDfa() ? dfa.s0.edges.length == 0 : dfa.s0 == null);
+                if (!empty || states.length == 0) {
+                    return 0;
+                }
+                for (DFAState state : states) {
+                    state.stateNumber = dfa.states.size();
+                    dfa.states.put(state, state);
+                }
+                for (int i = 0; i < states.length; i++) {
+                    states[i].edges = link(edges[i], states);
+                }
+                if (precedenceEdges != null) {
+                    DFAState[] precedenceStates = link(precedenceEdges, states);
+                    for (int precedence = 0; precedence < precedenceStates.length; precedence++) {
+                        if (precedenceStates[precedence] != null) {
+                            dfa.setPrecedenceStartState(precedence, precedenceStates[precedence]);
+                        }
+                    }
+                } else if (start != NO_STATE) {
+                    dfa.s0 = states[start];
+                }
+            }
+            return states.length;
+        }
+
+        private DFAState readState() throws IOException {
+            boolean fullCtx = in.readBoolean();
+            int uniqueAlt = in.readInt();
+            boolean hasSemanticContext = in.readBoolean();
+            boolean dipsIntoOuterContext = in.readBoolean();
+            ATNConfigSet configs = lexer ? new OrderedATNConfigSet() : new SnapshotConfigSet(fullCtx);
+
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                ATNState state = atn.states.get(in.readInt());
+                int alt = in.readInt();
+                PredictionContext context = context(in.readInt());
+                SemanticContext semantic = semantics[in.readInt()];
+                int reachesIntoOuterContext = in.readInt();
+                ATNConfig config;
+                if (lexer) {
+                    boolean nonGreedy = in.readBoolean();
+                    config = lexerConfig(state, alt, context, executor(in.readInt()), nonGreedy);
+                } else {
+                    config = new ATNConfig(state, alt, context, semantic);
+                }
+                config.reachesIntoOuterContext = reachesIntoOuterContext;
+                configs.add(config);
+            }
+            configs.uniqueAlt = uniqueAlt;
+            configs.hasSemanticContext = hasSemanticContext;
+            configs.dipsIntoOuterContext = dipsIntoOuterContext;
+
+            DFAState dfaState = new DFAState(configs);
+            dfaState.isAcceptState = in.readBoolean();
+            dfaState.prediction = in.readInt();
+            dfaState.requiresFullContext = in.readBoolean();
+            dfaState.lexerActionExecutor = executor(in.readInt());
+            int predicates = in.readInt();
+            if (predicates >= 0) {
+                dfaState.predicates = new DFAState.PredPrediction[predicates];
+                for (int i = 0; i < predicates; i++) {
+                    SemanticContext pred = semantics[in.readInt()];
+                    dfaState.predicates[i] = new DFAState.PredPrediction(pred, in.readInt());
+                }
+            }
+            if (dfaState.requiresFullContext && configs instanceof SnapshotConfigSet) {
+                ((SnapshotConfigSet) configs).restoreConflictingAlts();
+            }
+            configs.setReadonly(true);
+            return dfaState;
+        }
+
+        private int[] readEdges() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            int[] edges = new int[length];
+            Arrays.fill(edges, NO_STATE);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int index = in.readInt();
+                edges[index] = in.readInt();
+            }
+            return edges;
+        }
+
+        private DFAState[] link(int[] edges, DFAState[] states) {
+            if (edges == null) {
+                return null;
+            }
+            DFAState[] linked = new DFAState[edges.length];
+            for (int i = 0; i < edges.length; i++) {
+                if (edges[i] == ERROR_STATE) {
+                    linked[i] = ATNSimulator.ERROR;
+                } else if (edges[i] != NO_STATE) {
+                    linked[i] = states[edges[i]];
+                }
+            }
+            return linked;
+        }
+
+        /**
+         * LexerATNConfig only exposes the non-greedy flag through its copy constructors, so a config
+         * that passed a non-greedy decision is derived from one positioned on such a decision.
+         */
+        private LexerATNConfig lexerConfig(ATNState state, int alt, PredictionContext context,
+                                           LexerActionExecutor executor, boolean nonGreedy) throws IOException {
+            LexerATNConfig config = new LexerATNConfig(state, alt, context, executor);
+            if (!nonGreedy) {
+                return config;
+            }
+            DecisionState nonGreedyDecision = null;
+            for (DecisionState decision : atn.decisionToState) {
+                if (decision.nonGreedy) {
+                    nonGreedyDecision = decision;
+                    break;
+                }
+            }
+            if (nonGreedyDecision == null) {
+                throw new IOException("Snapshot has a non-greedy config but the ATN has no non-greedy decision");
+            }
+            return new LexerATNConfig(new LexerATNConfig(config, nonGreedyDecision), state, executor);
+        }
+
+        private PredictionContext context(int id) {
+            return id < 0 ? null : contexts[id];
+        }
+
+        private LexerActionExecutor executor(int id) {
+            return id < 0 ? null : executors[id];
+        }
+    }
+
+    /**
+     * A parser config set whose conflicting alternatives can be restored; the field is only
+     * writable from subclasses outside the ANTLR runtime.
+     */
+    private static final class SnapshotConfigSet extends ATNConfigSet {
+
+        SnapshotConfigSet(boolean fullCtx) {
+            super(fullCtx);
+        }
+
+        void restoreConflictingAlts() {
+            conflictingAlts = PredictionMode.getAlts(PredictionMode.getConflictingAltSubsets(this));
+        }
+    }
+}
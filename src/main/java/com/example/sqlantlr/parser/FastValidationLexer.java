@@ -0,0 +1,401 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+
+/**
+ * A ValidationLexer that lexes the common cases by hand instead of through the ATN, producing the
+ * same token types, positions and channels.
+ *
+ * Whitespace, comments, ASCII words, plain integers, quoted strings and a few single-character
+ * operators are scanned straight from the text of a {@link CharSequenceCharStream}; words are
+ * looked up in a perfect hash of the grammar's keyword literals. Whenever a token could match a
+ * rule the hand-written paths do not model, such as N'..', X'..', 1.5e3, @var, /*! ..*&#47; or
+ * non-ASCII identifiers, the generated lexer lexes it instead, as it does all input from other
+ * kinds of CharStream. {@link LexerDifferential} checks the two against each other.
+ */
+public class FastValidationLexer extends ValidationLexer {
+
+    private static final KeywordTable KEYWORDS = KeywordTable.fromVocabulary(VOCABULARY);
+
+    // Returned by the scanners for input they leave to the generated lexer
+    private static final int NOT_HANDLED = -2;
+
+    // Keyword rules that also match a quoted form, QUOTE_SYMB? 'COMPRESSION' QUOTE_SYMB?, and so have no literal name
+    private static final String[] QUOTABLE_KEYWORDS = {"COMPRESSION", "SESSION_VARIABLES_ADMIN"};
+
+    // CHARSET_NAME from the grammar; `name` lexes as CHARSET_REVERSE_QOUTE_STRING rather than a string
+    private static final String[] CHARSET_NAMES = {
+            "ARMSCII8", "ASCII", "BIG5", "BINARY", "CP1250", "CP1251", "CP1256", "CP1257", "CP850", "CP852",
+            "CP866", "CP932", "DEC8", "EUCJPMS", "EUCKR", "GB2312", "GBK", "GEOSTD8", "GREEK", "HEBREW", "HP8",
+            "KEYBCS2", "KOI8R", "KOI8U", "LATIN1", "LATIN2", "LATIN5", "LATIN7", "MACCE", "MACROMAN", "SJIS",
+            "SWE7", "TIS620", "UCS2", "UJIS", "UTF16", "UTF16LE", "UTF32", "UTF8", "UTF8MB3", "UTF8MB4"
+    };
+
+    private final char[] word = new char[KEYWORDS.getMaxLength()];
+
+    // The text being scanned, the position of the next character in it and the end of the stream's range
+    private CharSequence text;
+    private int position;
+    private int end;
+
+    // Line and column of the next character; written back to the interpreter per token
+    private int line;
+    private int column;
+
+    public FastValidationLexer(CharStream input) {
+        super(input);
+    }
+
+    @Override
+    public Token nextToken() {
+        if (!(_input instanceof CharSequenceCharStream stream)) {
+            return super.nextToken();
+        }
+        int offset = stream.getOffset();
+        LexerATNSimulator interpreter = getInterpreter();
+        text = stream.getSource();
+        position = offset + stream.index();
+        end = offset + stream.size();
+        line = interpreter.getLine();
+        column = interpreter.getCharPositionInLine();
+        try {
+            while (true) {
+                int start = position;
+                int startLine = line;
+                int startColumn = column;
+                int type = position < end ? scan(text.charAt(position)) : NOT_HANDLED;
+                if (type == SKIP) {
+                    continue;
+                }
+                if (type == NOT_HANDLED) {
+                    // Like Lexer, emit EOF without matching once the input is used up; matching at EOF
+                    // has no DFA edge and would run the full ATN simulation
+                    if (start == end) {
+                        _hitEOF = true;
+                    }
+                    stream.seek(start - offset);
+                    interpreter.setLine(startLine);
+                    interpreter.setCharPositionInLine(startColumn);
+                    return super.nextToken();
+                }
+                stream.seek(position - offset);
+                interpreter.setLine(line);
+                interpreter.setCharPositionInLine(column);
+                _tokenStartCharIndex = start - offset;
+                _tokenStartLine = startLine;
+                _tokenStartCharPositionInLine = startColumn;
+                _type = type;
+                _channel = DEFAULT_TOKEN_CHANNEL;
+                _text = null;
+                if (position == end) {
+                    _hitEOF = true;
+                }
+                _token = _factory.create(_tokenFactorySourcePair, type, null, DEFAULT_TOKEN_CHANNEL,
+                        start - offset, position - offset - 1, startLine, startColumn);
+                return _token;
+            }
+        } finally {
+            text = null;
+        }
+    }
+
+    /**
+     * Scans one token starting with c, the character at the current position
+     * @return Its type, SKIP for whitespace and comments, or NOT_HANDLED
+     */
+    private int scan(char c) {
+        switch (c) {
+            case ' ', '\t', '\r', '\n' -> {
+                do {
+                    advance(c);
+                } while (position < end && isSpace(c = text.charAt(position)));
+                return SKIP;
+            }
+            case '(' -> {
+                return single(LR_BRACKET);
+            }
+            case ')' -> {
+                return single(RR_BRACKET);
+            }
+            case ',' -> {
+                return single(COMMA);
+            }
+            case ';' -> {
+                return single(SEMI);
+            }
+            case '=' -> {
+                return single(EQUAL);
+            }
+            case '\'', '"' -> {
+                return scanString(c);
+            }
+            case '`' -> {
+                return scanQuotedIdentifier();
+            }
+            case '-' -> {
+                return charAt(position + 1) == '-' ? scanLineComment() : NOT_HANDLED;
+            }
+            case '#' -> {
+                return scanLineComment();
+            }
+            case '/' -> {
+                return charAt(position + 1) == '*' && charAt(position + 2) != '!' ? scanBlockComment() : NOT_HANDLED;
+            }
+            default -> {
+                if (c >= '0' && c <= '9') {
+                    return scanNumber();
+                }
+                if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z') {
+                    return scanWord();
+                }
+                return NOT_HANDLED;
+            }
+        }
+    }
+
+    private int single(int type) {
+        position++;
+        column++;
+        return type;
+    }
+
+    /**
+     * A keyword or an ID made of ASCII letters, digits, '_' and '$', starting with a letter
+     */
+    private int scanWord() {
+        int start = position;
+        int hash = KeywordTable.FNV_OFFSET;
+        int c = text.charAt(position);
+        while (isWordChar(c)) {
+            int length = position - start;
+            if (length < word.length) {
+                char upper = (char) (c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c);
+                word[length] = upper;
+                hash = KeywordTable.hash(hash, upper);
+            }
+            position++;
+            c = charAt(position);
+        }
+        int length = position - start;
+        column += length;
+        // Non-ASCII identifier characters, and N'..', X'..', B'..' and the quotable keywords
+        if (c >= 0x80 || c == '\'' || c == '"' || c == '`') {
+            return NOT_HANDLED;
+        }
+        if (length > word.length) {
+            return ID;
+        }
+        for (String keyword : QUOTABLE_KEYWORDS) {
+            if (matchesWord(keyword, length)) {
+                return NOT_HANDLED;
+            }
+        }
+        int type = KEYWORDS.lookup(word, length, hash);
+        return type >= 0 ? type : ID;
+    }
+
+    /**
+     * 0, 1, 2 or a DECIMAL_LITERAL; digits followed by anything that could extend them are left to the generated lexer
+     */
+    private int scanNumber() {
+        int start = position;
+        int c = text.charAt(position);
+        while (c >= '0' && c <= '9') {
+            position++;
+            c = charAt(position);
+        }
+        column += position - start;
+        if (isWordChar(c) || c >= 0x80 || c == '.') {
+            return NOT_HANDLED;
+        }
+        if (position - start == 1) {
+            switch (text.charAt(start)) {
+                case '0' -> {
+                    return ZERO_DECIMAL;
+                }
+                case '1' -> {
+                    return ONE_DECIMAL;
+                }
+                case '2' -> {
+                    return TWO_DECIMAL;
+                }
+                default -> {
+                }
+            }
+        }
+        return DECIMAL_LITERAL;
+    }
+
+    /**
+     * A terminated '..' or ".." STRING_LITERAL with backslash escapes and doubled quotes
+     */
+    private int scanString(char quote) {
+        advance(quote);
+        if (startsWithQuotableKeyword()) {
+            return NOT_HANDLED;
+        }
+        while (position < end) {
+            char c = text.charAt(position);
+            advance(c);
+            if (c == '\\') {
+                if (position == end) {
+                    return NOT_HANDLED;
+                }
+                advance(text.charAt(position));
+            } else if (c == quote) {
+                if (charAt(position) != quote) {
+                    return STRING_LITERAL;
+                }
+                advance(quote);
+            }
+        }
+        return NOT_HANDLED;
+    }
+
+    /**
+     * A terminated `..` with doubled backquotes, which lexes as STRING_LITERAL
+     */
+    private int scanQuotedIdentifier() {
+        advance('`');
+        if (startsWithQuotableKeyword()) {
+            return NOT_HANDLED;
+        }
+        int contentStart = position;
+        while (true) {
+            if (position == end) {
+                return NOT_HANDLED;
+            }
+            char c = text.charAt(position);
+            advance(c);
+            if (c == '`') {
+                if (charAt(position) != '`') {
+                    break;
+                }
+                advance(c);
+            }
+        }
+        int contentLength = position - 1 - contentStart;
+        for (String charset : CHARSET_NAMES) {
+            if (charset.length() == contentLength && regionMatchesUpperCase(contentStart, charset)) {
+                return NOT_HANDLED;
+            }
+        }
+        return STRING_LITERAL;
+    }
+
+    /**
+     * A -- or # comment running to the end of the line, including its \n or \r\n
+     */
+    private int scanLineComment() {
+        while (position < end) {
+            char c = text.charAt(position);
+            if (c == '\n') {
+                advance(c);
+                return SKIP;
+            }
+            if (c == '\r') {
+                // A lone \r ends no comment
+                if (charAt(position + 1) != '\n') {
+                    return NOT_HANDLED;
+                }
+                advance(c);
+                advance('\n');
+                return SKIP;
+            }
+            advance(c);
+        }
+        return SKIP;
+    }
+
+    /**
+     * A terminated /* .. *&#47; comment
+     */
+    private int scanBlockComment() {
+        advance('/');
+        advance('*');
+        char previous = 0;
+        while (position < end) {
+            char c = text.charAt(position);
+            advance(c);
+            if (previous == '*' && c == '/') {
+                return SKIP;
+            }
+            previous = c;
+        }
+        return NOT_HANDLED;
+    }
+
+    private boolean startsWithQuotableKeyword() {
+        for (String keyword : QUOTABLE_KEYWORDS) {
+            if (regionMatchesUpperCase(position, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether the text from index on starts with the given upper-case ASCII text, ignoring case
+     */
+    private boolean regionMatchesUpperCase(int index, String expected) {
+        if (end - index < expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            char c = text.charAt(index + i);
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            if (c != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesWord(String keyword, int length) {
+        if (keyword.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word[i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The character at index, or EOF past the end of the stream's range
+     */
+    private int charAt(int index) {
+        return index < end ? text.charAt(index) : EOF;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean isWordChar(int c) {
+        return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_' || c == '$';
+    }
+
+    /**
+     * Moves past c, the character at the current position, tracking the line and column as
+     * LexerATNSimulator does; a surrogate pair is one symbol and so one column
+     */
+    private void advance(char c) {
+        position++;
+        if (c == '\n') {
+            line++;
+            column = 0;
+            return;
+        }
+        column++;
+        if (Character.isHighSurrogate(c) && position < end && Character.isLowSurrogate(text.charAt(position))) {
+            position++;
+        }
+    }
+}
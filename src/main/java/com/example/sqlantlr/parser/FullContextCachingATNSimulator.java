@@ -0,0 +1,159 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ParserATNSimulator for LL prediction over a {@link StreamingTokenStream} that remembers the
+ * outcome of decisions which have needed full-context prediction.
+ *
+ * The DFA cache only holds SLL results, so every SLL conflict is resolved again by a full-context
+ * simulation over the parser's call stack, which is slow. A streamed extended INSERT hits the
+ * same few conflicts on every row with the same stack each time. A prediction depends only on the
+ * decision, the parser's precedence, the invoking states on its stack and the types of the tokens
+ * it looked at, so for decisions that have gone to full context, the alternative is remembered
+ * under those and reused when they recur.
+ *
+ * Like {@link BudgetedParserATNSimulator}, it charges every lookahead symbol it simulates outside
+ * the DFA cache to a {@link ParseBudget.Meter}.
+ */
+public class FullContextCachingATNSimulator extends ParserATNSimulator {
+
+    // Remembered predictions before the cache is emptied, and per decision and stack
+    private static final int MAX_PREDICTIONS = 4096;
+    private static final int MAX_PREDICTIONS_PER_KEY = 16;
+
+    private final Parser parser;
+    private final ParseBudget.Meter meter;
+    private final BitSet fullContextDecisions = new BitSet();
+    private final Map<Key, List<Prediction>> predictions = new HashMap<>();
+    private int size;
+
+    /**
+     * Creates a simulator sharing the DFA and prediction context caches of the parser's current one
+     */
+    public FullContextCachingATNSimulator(Parser parser, ParseBudget.Meter meter) {
+        super(parser, parser.getATN(), parser.getInterpreter().decisionToDFA,
+                parser.getInterpreter().getSharedContextCache());
+        this.parser = parser;
+        this.meter = meter;
+    }
+
+    @Override
+    protected ATNConfigSet computeReachSet(ATNConfigSet closure, int t, boolean fullCtx) {
+        meter.chargePredictionStep();
+        return super.computeReachSet(closure, t, fullCtx);
+    }
+
+    @Override
+    public int adaptivePredict(TokenStream input, int decision, ParserRuleContext outerContext) {
+        if (!fullContextDecisions.get(decision) || !(input instanceof StreamingTokenStream stream)) {
+            return super.adaptivePredict(input, decision, outerContext);
+        }
+        Key key = new Key(decision, parser.getPrecedence(), outerContext);
+        List<Prediction> known = predictions.get(key);
+        if (known != null) {
+            for (Prediction prediction : known) {
+                if (prediction.matches(input)) {
+                    return prediction.alt;
+                }
+            }
+        }
+
+        int start = input.index();
+        stream.resetLookahead();
+        int alt = super.adaptivePredict(input, decision, outerContext);
+        int[] types = new int[stream.getLookaheadIndex() - start + 1];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = input.LA(i + 1);
+        }
+        if (size >= MAX_PREDICTIONS) {
+            predictions.clear();
+            size = 0;
+        }
+        List<Prediction> list = predictions.computeIfAbsent(key, k -> new ArrayList<>());
+        if (list.size() < MAX_PREDICTIONS_PER_KEY) {
+            list.add(new Prediction(types, alt));
+            size++;
+        }
+        return alt;
+    }
+
+    @Override
+    protected void reportAttemptingFullContext(DFA dfa, BitSet conflictingAlts, ATNConfigSet configs,
+                                               int startIndex, int stopIndex) {
+        fullContextDecisions.set(dfa.decision);
+        super.reportAttemptingFullContext(dfa, conflictingAlts, configs, startIndex, stopIndex);
+    }
+
+    /**
+     * A decision in a given parser state
+     */
+    private static final class Key {
+        private final int decision;
+        private final int precedence;
+        private final int[] invokingStates;
+        private final int hash;
+
+        Key(int decision, int precedence, RuleContext context) {
+            int depth = 0;
+            for (RuleContext c = context; c != null; c = c.parent) {
+                depth++;
+            }
+            int[] states = new int[depth];
+            int i = 0;
+            for (RuleContext c = context; c != null; c = c.parent) {
+                states[i++] = c.invokingState;
+            }
+            this.decision = decision;
+            this.precedence = precedence;
+            this.invokingStates = states;
+            this.hash = 31 * (31 * decision + precedence) + Arrays.hashCode(states);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && decision == other.decision && precedence == other.precedence
+                    && Arrays.equals(invokingStates, other.invokingStates);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The alternative predicted for the token types that were looked at
+     */
+    private static final class Prediction {
+        private final int[] types;
+        private final int alt;
+
+        Prediction(int[] types, int alt) {
+            this.types = types;
+            this.alt = alt;
+        }
+
+        boolean matches(TokenStream input) {
+            for (int i = 0; i < types.length; i++) {
+                if (input.LA(i + 1) != types[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.Vocabulary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A perfect hash table from keyword to token type, for looking up an upper-cased word while it is
+ * being scanned.
+ *
+ * The table uses hash-and-displace: the FNV-1a hash of a word picks a bucket, and the bucket's
+ * displacement, chosen when the table is built, picks the slot. Every keyword has a slot of its
+ * own, so a lookup is one hash, two array reads and a single key comparison.
+ */
+final class KeywordTable {
+
+    static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    // Displacements tried per bucket before giving up on the table size
+    private static final int MAX_DISPLACEMENT = 1 << 16;
+
+    private final int bucketMask;
+    private final int slotMask;
+    private final int[] displacements;
+    private final char[][] keys;
+    private final int[] types;
+    private final int maxLength;
+
+    private KeywordTable(List<char[]> words, List<Integer> wordTypes) {
+        int buckets = Integer.highestOneBit(Math.max(1, words.size() / 4)) * 2;
+        int slots = Integer.highestOneBit(Math.max(1, words.size())) * 4;
+        this.bucketMask = buckets - 1;
+        this.slotMask = slots - 1;
+        this.displacements = new int[buckets];
+        this.keys = new char[slots][];
+        this.types = new int[slots];
+
+        List<List<Integer>> members = new ArrayList<>();
+        for (int b = 0; b < buckets; b++) {
+            members.add(new ArrayList<>());
+        }
+        int longest = 0;
+        for (int i = 0; i < words.size(); i++) {
+            members.get(bucket(hash(words.get(i)))).add(i);
+            longest = Math.max(longest, words.get(i).length);
+        }
+        this.maxLength = longest;
+
+        // Largest buckets first, while most slots are still free
+        List<Integer> order = new ArrayList<>();
+        for (int b = 0; b < buckets; b++) {
+            order.add(b);
+        }
+        order.sort(Comparator.comparingInt((Integer b) -> members.get(b).size()).reversed());
+
+        for (int b : order) {
+            List<Integer> bucket = members.get(b);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            int d = 0;
+            while (!place(bucket, words, wordTypes, d)) {
+                if (++d == MAX_DISPLACEMENT) {
+                    throw new IllegalStateException("No perfect hash for " + words.size() + " keywords in " + slots + " slots");
+                }
+            }
+            displacements[b] = d;
+        }
+    }
+
+    /**
+     * Builds the table from the vocabulary's literal names that are plain words, such as 'SELECT'.
+     * A literal shared by several token types maps to the lowest one, the rule ANTLR prefers.
+     */
+    static KeywordTable fromVocabulary(Vocabulary vocabulary) {
+        List<char[]> words = new ArrayList<>();
+        List<Integer> wordTypes = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int type = 1; type <= vocabulary.getMaxTokenType(); type++) {
+            String literal = vocabulary.getLiteralName(type);
+            if (literal == null || !isWord(literal.substring(1, literal.length() - 1))) {
+                continue;
+            }
+            String word = literal.substring(1, literal.length() - 1);
+            if (!seen.add(word)) {
+                continue;
+            }
+            words.add(word.toCharArray());
+            wordTypes.add(type);
+        }
+        return new KeywordTable(words, wordTypes);
+    }
+
+    private static boolean isWord(String literal) {
+        if (literal.isEmpty() || literal.charAt(0) < 'A' || literal.charAt(0) > 'Z') {
+            return false;
+        }
+        for (int i = 1; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (!(c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds an upper-case ASCII character to a hash started from {@link #FNV_OFFSET}
+     */
+    static int hash(int hash, char c) {
+        return (hash ^ c) * FNV_PRIME;
+    }
+
+    private static int hash(char[] word) {
+        int h = FNV_OFFSET;
+        for (char c : word) {
+            h = hash(h, c);
+        }
+        return h;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private int bucket(int hash) {
+        return mix(hash) & bucketMask;
+    }
+
+    private int slot(int hash, int displacement) {
+        return mix(hash + displacement * 0x9E3779B9) & slotMask;
+    }
+
+    private boolean place(List<Integer> bucket, List<char[]> words, List<Integer> wordTypes, int d) {
+        int[] chosen = new int[bucket.size()];
+        for (int i = 0; i < bucket.size(); i++) {
+            int slot = slot(hash(words.get(bucket.get(i))), d);
+            if (keys[slot] != null) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (chosen[j] == slot) {
+                    return false;
+                }
+            }
+            chosen[i] = slot;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            keys[chosen[i]] = words.get(bucket.get(i));
+            types[chosen[i]] = wordTypes.get(bucket.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * @return Length of the longest keyword; longer words are never keywords
+     */
+    int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @param word Buffer holding the upper-cased word in its first length chars
+     * @param hash The hash of those chars, as built with {@link #hash(int, char)}
+     * @return The token type of the keyword, or -1 if the word is not one
+     */
+    int lookup(char[] word, int length, int hash) {
+        int slot = slot(hash, displacements[bucket(hash)]);
+        char[] key = keys[slot];
+        if (key == null || key.length != length) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != word[i]) {
+                return -1;
+            }
+        }
+        return types[slot];
+    }
+}
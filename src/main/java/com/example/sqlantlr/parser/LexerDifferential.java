@@ -0,0 +1,103 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Token;
+
+import java.util.List;
+
+/**
+ * Checks {@link FastValidationLexer} token for token against the generated lexer, as
+ * {@link ValidationLexer}, over the same text. Tokens must agree on type, channel, start and stop
+ * index, line and column, and the two must record the same unrecognized characters.
+ */
+public final class LexerDifferential {
+
+    private LexerDifferential() {
+    }
+
+    /**
+     * @param text The text to lex with both lexers
+     * @return The number of tokens compared and the first difference, if any
+     */
+    public static Report compare(CharSequence text) {
+        ValidationLexer expected = new ValidationLexer(new CharSequenceCharStream(text));
+        FastValidationLexer actual = new FastValidationLexer(new CharSequenceCharStream(text));
+        expected.removeErrorListeners();
+        actual.removeErrorListeners();
+
+        int count = 0;
+        while (true) {
+            Token e = expected.nextToken();
+            Token a = actual.nextToken();
+            count++;
+            if (!sameToken(e, a)) {
+                return new Report(count, "token " + (count - 1) + ": expected " + describe(expected, e)
+                        + " but was " + describe(actual, a));
+            }
+            if (e.getType() == Token.EOF) {
+                break;
+            }
+        }
+
+        List<ValidationLexer.UnrecognizedChar> expectedChars = expected.getUnrecognizedInput(0, Integer.MAX_VALUE);
+        List<ValidationLexer.UnrecognizedChar> actualChars = actual.getUnrecognizedInput(0, Integer.MAX_VALUE);
+        if (expectedChars.size() != actualChars.size()) {
+            return new Report(count, "expected " + expectedChars.size() + " unrecognized characters but was "
+                    + actualChars.size());
+        }
+        for (int i = 0; i < expectedChars.size(); i++) {
+            if (expectedChars.get(i).getStartIndex() != actualChars.get(i).getStartIndex()) {
+                return new Report(count, "unrecognized character " + i + ": expected at index "
+                        + expectedChars.get(i).getStartIndex() + " but was at " + actualChars.get(i).getStartIndex());
+            }
+        }
+        return new Report(count, null);
+    }
+
+    private static boolean sameToken(Token e, Token a) {
+        return e.getType() == a.getType()
+                && e.getChannel() == a.getChannel()
+                && e.getStartIndex() == a.getStartIndex()
+                && e.getStopIndex() == a.getStopIndex()
+                && e.getLine() == a.getLine()
+                && e.getCharPositionInLine() == a.getCharPositionInLine();
+    }
+
+    private static String describe(Lexer lexer, Token token) {
+        String text = token.getType() == Token.EOF ? "<EOF>" : token.getText();
+        return lexer.getVocabulary().getDisplayName(token.getType()) + " '" + lexer.getErrorDisplay(text) + "' at "
+                + token.getLine() + ":" + token.getCharPositionInLine() + " [" + token.getStartIndex() + ".."
+                + token.getStopIndex() + "] channel " + token.getChannel();
+    }
+
+    /**
+     * Outcome of one comparison
+     */
+    public static final class Report {
+        private final int tokens;
+        private final String mismatch;
+
+        Report(int tokens, String mismatch) {
+            this.tokens = tokens;
+            this.mismatch = mismatch;
+        }
+
+        /**
+         * @return Number of tokens compared, including EOF or the first mismatching token
+         */
+        public int getTokens() {
+            return tokens;
+        }
+
+        /**
+         * @return Description of the first difference, or null if the lexers agree
+         */
+        public String getMismatch() {
+            return mismatch;
+        }
+
+        public boolean isMatch() {
+            return mismatch == null;
+        }
+    }
+}
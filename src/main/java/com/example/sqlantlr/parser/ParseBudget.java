@@ -0,0 +1,141 @@
+package com.example.sqlantlr.parser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-statement limits on the work a parse may do: tokens read, ATN prediction steps
+ * (lookahead symbols simulated outside the DFA cache) and wall-clock time. A limit of 0 disables it.
+ *
+ * The limits are enforced by a {@link Meter}, which {@link BudgetedTokenStream} and
+ * {@link BudgetedParserATNSimulator} charge as the parse runs, and {@link BudgetedReader} as a
+ * streamed parse reads its text.
+ */
+public final class ParseBudget {
+
+    public static final ParseBudget UNLIMITED = new ParseBudget(0, 0, 0);
+
+    // How often the meter reads the clock, as a mask over its charge count
+    private static final int CLOCK_CHECK_MASK = 0x3F;
+
+    // Characters of streamed text that allow another budget's worth of time and prediction steps
+    private static final long STREAMED_CHARS_PER_ALLOWANCE = 1 << 20;
+
+    public enum Limit {
+        TOKENS,
+        PREDICTION_STEPS,
+        TIME
+    }
+
+    private final long maxTokens;
+    private final long maxPredictionSteps;
+    private final long maxNanos;
+
+    public ParseBudget(long maxTokens, long maxPredictionSteps, long maxMillis) {
+        this.maxTokens = maxTokens;
+        this.maxPredictionSteps = maxPredictionSteps;
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+    }
+
+    public boolean isUnlimited() {
+        return maxTokens <= 0 && maxPredictionSteps <= 0 && maxNanos <= 0;
+    }
+
+    /**
+     * @return A meter for this budget; a meter is not thread-safe and is reused statement after statement
+     */
+    public Meter newMeter() {
+        return new Meter();
+    }
+
+    /**
+     * Tracks one statement at a time against the budget. Charges outside start()/stop() are ignored.
+     */
+    public final class Meter {
+        private boolean running;
+        private long tokens;
+        private int furthestToken;
+        private long predictionSteps;
+        private long predictionStepLimit;
+        private long streamedChars;
+        private long charges;
+        private long deadline;
+
+        private Meter() {
+        }
+
+        public void start() {
+            running = !isUnlimited();
+            tokens = 0;
+            furthestToken = -1;
+            predictionSteps = 0;
+            predictionStepLimit = maxPredictionSteps;
+            streamedChars = 0;
+            charges = 0;
+            deadline = System.nanoTime() + maxNanos;
+        }
+
+        public void stop() {
+            running = false;
+        }
+
+        /**
+         * Charges a token lexed or consumed at the given stream index. Tokens are consumed after they
+         * are lexed, and prediction consumes them again while looking ahead, so only positions past
+         * the furthest one seen are counted.
+         */
+        void chargeToken(int index) {
+            if (running) {
+                if (index > furthestToken) {
+                    furthestToken = index;
+                    tokens++;
+                    if (maxTokens > 0 && tokens > maxTokens) {
+                        exceeded(Limit.TOKENS, maxTokens + " tokens");
+                    }
+                }
+                checkClock();
+            }
+        }
+
+        void chargePredictionStep() {
+            if (running) {
+                predictionSteps++;
+                if (maxPredictionSteps > 0 && predictionSteps > predictionStepLimit) {
+                    exceeded(Limit.PREDICTION_STEPS, predictionStepLimit + " prediction steps");
+                }
+                checkClock();
+            }
+        }
+
+        /**
+         * Charges characters read from a stream, checking the time limit on every read. A streamed
+         * statement may be far longer than one held in memory, so each
+         * {@link #STREAMED_CHARS_PER_ALLOWANCE} characters read allow another budget's worth of time
+         * and prediction steps, while text trickling in allows next to none.
+         */
+        void chargeRead(int chars) {
+            if (running) {
+                streamedChars += chars;
+                while (streamedChars >= STREAMED_CHARS_PER_ALLOWANCE) {
+                    streamedChars -= STREAMED_CHARS_PER_ALLOWANCE;
+                    deadline += maxNanos;
+                    predictionStepLimit += maxPredictionSteps;
+                }
+                if (maxNanos > 0 && System.nanoTime() - deadline > 0) {
+                    exceeded(Limit.TIME, TimeUnit.NANOSECONDS.toMillis(maxNanos) + " ms per "
+                            + STREAMED_CHARS_PER_ALLOWANCE + " characters read");
+                }
+            }
+        }
+
+        private void checkClock() {
+            if (maxNanos > 0 && (++charges & CLOCK_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0) {
+                exceeded(Limit.TIME, TimeUnit.NANOSECONDS.toMillis(maxNanos) + " ms");
+            }
+        }
+
+        private void exceeded(Limit limit, String description) {
+            running = false;
+            throw new ParseBudgetExceededException(limit, "Parse budget exceeded: more than " + description);
+        }
+    }
+}
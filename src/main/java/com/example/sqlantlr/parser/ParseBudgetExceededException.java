@@ -0,0 +1,21 @@
+package com.example.sqlantlr.parser;
+
+/**
+ * Thrown from inside a parse when a statement runs out of its {@link ParseBudget}.
+ *
+ * Deliberately not a ParseCancellationException, so the SLL stage does not mistake it for a
+ * syntax error and retry the statement with full LL.
+ */
+public class ParseBudgetExceededException extends RuntimeException {
+
+    private final ParseBudget.Limit limit;
+
+    public ParseBudgetExceededException(ParseBudget.Limit limit, String message) {
+        super(message);
+        this.limit = limit;
+    }
+
+    public ParseBudget.Limit getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.sqlantlr.parser;
+
+import com.sql.validator.MariaDBLexer;
+import com.sql.validator.MariaDBParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.TokenStream;
+
+import java.util.function.Function;
+
+/**
+ * The kinds of statement that can be parsed with a dedicated entry rule instead of root,
+ * skipping the prediction across every sqlStatement alternative.
+ *
+ * Classification only looks at the first few tokens. A statement that parses with its entry
+ * rule is also a valid root statement, so a wrong guess can only cost a fallback to root.
+ */
+public enum StatementKind {
+    SELECT(MariaDBParser::selectStatement),
+    INSERT(MariaDBParser::insertStatement),
+    UPDATE(MariaDBParser::updateStatement),
+    DELETE(MariaDBParser::deleteStatement),
+    REPLACE(MariaDBParser::replaceStatement),
+    CREATE_TABLE(MariaDBParser::createTable),
+    ALTER_TABLE(MariaDBParser::alterTable),
+    // Anything else is parsed from root
+    OTHER(null);
+
+    private final Function<MariaDBParser, ParserRuleContext> entryRule;
+
+    StatementKind(Function<MariaDBParser, ParserRuleContext> entryRule) {
+        this.entryRule = entryRule;
+    }
+
+    /**
+     * @return Whether statements of this kind have a dedicated entry rule
+     */
+    public boolean isRouted() {
+        return entryRule != null;
+    }
+
+    /**
+     * Invokes the entry rule of this kind on the parser's current position
+     */
+    public ParserRuleContext parse(MariaDBParser parser) {
+        if (entryRule == null) {
+            throw new IllegalStateException(this + " statements have no entry rule");
+        }
+        return entryRule.apply(parser);
+    }
+
+    /**
+     * Classifies the statement starting at the current position of the stream without consuming it
+     * @param tokens The token stream, positioned at the first token of the statement
+     * @return The statement kind, or OTHER if the prefix is not one of the routed kinds
+     */
+    public static StatementKind classify(TokenStream tokens) {
+        switch (tokens.LA(1)) {
+            case MariaDBLexer.SELECT:
+            case MariaDBLexer.LR_BRACKET:
+                return SELECT;
+            case MariaDBLexer.INSERT:
+                return INSERT;
+            case MariaDBLexer.UPDATE:
+                return UPDATE;
+            case MariaDBLexer.DELETE:
+                return DELETE;
+            case MariaDBLexer.REPLACE:
+                return REPLACE;
+            case MariaDBLexer.CREATE:
+                return classifyCreate(tokens);
+            case MariaDBLexer.ALTER:
+                return classifyAlter(tokens);
+            default:
+                return OTHER;
+        }
+    }
+
+    // CREATE (OR REPLACE)? TEMPORARY? TABLE
+    private static StatementKind classifyCreate(TokenStream tokens) {
+        int i = 2;
+        if (tokens.LA(i) == MariaDBLexer.OR && tokens.LA(i + 1) == MariaDBLexer.REPLACE) {
+            i += 2;
+        }
+        if (tokens.LA(i) == MariaDBLexer.TEMPORARY) {
+            i++;
+        }
+        return tokens.LA(i) == MariaDBLexer.TABLE ? CREATE_TABLE : OTHER;
+    }
+
+    // ALTER (ONLINE | OFFLINE)? IGNORE? TABLE
+    private static StatementKind classifyAlter(TokenStream tokens) {
+        int i = 2;
+        if (tokens.LA(i) == MariaDBLexer.ONLINE || tokens.LA(i) == MariaDBLexer.OFFLINE) {
+            i++;
+        }
+        if (tokens.LA(i) == MariaDBLexer.IGNORE) {
+            i++;
+        }
+        return tokens.LA(i) == MariaDBLexer.TABLE ? ALTER_TABLE : OTHER;
+    }
+}
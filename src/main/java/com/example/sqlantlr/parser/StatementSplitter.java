@@ -0,0 +1,203 @@
+package com.example.sqlantlr.parser;
+
+import com.sql.validator.MariaDBLexer;
+import org.antlr.v4.runtime.Token;
+
+import java.util.Arrays;
+
+/**
+ * Cuts a lexed script into statements at the tokens that end them, so that each statement's
+ * tokens can be handed to the parser as they are.
+ *
+ * A statement ends at a SEMI standing for a DELIMITER-set delimiter, or at a ';' outside compound
+ * statements while the delimiter is ';'. Compound statements are tracked by their nesting depth:
+ * CASE, and BEGIN (other than the one starting a transaction), IF, LOOP, WHILE, REPEAT and FOR where
+ * a statement starts open one, and END, with whatever keyword follows it, closes one where a
+ * statement could start, or wherever it ends a CASE expression or REPEAT loop. A routine or trigger
+ * body starts after its header: after the parameter list and characteristics of a procedure or
+ * function, after FOR EACH ROW of a trigger, or after DO of an event. Elsewhere, such as in a column
+ * list or an expression, BEGIN and END are names. This keeps a stored routine or trigger body
+ * written without DELIMITER in one statement, as the parser expects, while a ';' inside a string or
+ * comment never ends one, as the lexer has already consumed it.
+ */
+public final class StatementSplitter {
+
+    // What the statement creates, as far as where a routine body may start
+    private static final int NO_ROUTINE = 0;
+    // A procedure or function whose parameter list has not been read yet
+    private static final int ROUTINE = 1;
+    // A routine past its parameter list, or a trigger, whose body follows its header
+    private static final int ROUTINE_HEADER = 2;
+
+    private StatementSplitter() {
+    }
+
+    /**
+     * @param tokens A fully lexed stream read from the delimiters source
+     * @param delimiters The source the tokens were read from
+     * @return For each statement, the token index after its last token: the ';' or delimiter ending
+     * it, or the last token before EOF for a final statement that has none
+     */
+    public static int[] split(CompactTokenStream tokens, DelimiterTokenSource delimiters) {
+        int[] ends = new int[64];
+        int count = 0;
+        int statementStart = 0;
+        int depth = 0;
+        // Bit d is set when the compound opened at depth d is a CASE expression, in which THEN and ELSE
+        // are followed by an expression, such as IF(...), rather than by statements
+        long caseExpressions = 0;
+        // The index of the last BEGIN that opened a compound statement
+        int blockBegin = -1;
+        // Parentheses open at depth 0, and the kind of routine the statement creates, if any
+        int parentheses = 0;
+        int routine = NO_ROUTINE;
+        for (int i = 0; ; i++) {
+            int type = tokens.getType(i);
+            if (type == Token.EOF) {
+                if (i > statementStart) {
+                    ends = add(ends, count++, i);
+                }
+                return Arrays.copyOf(ends, count);
+            }
+            switch (type) {
+                case MariaDBLexer.SEMI -> {
+                    int start = tokens.getStartIndex(i);
+                    if (delimiters.isDelimiter(start) || (depth == 0 && !delimiters.isCustomDelimiter(start))) {
+                        ends = add(ends, count++, i + 1);
+                        statementStart = i + 1;
+                        depth = 0;
+                        parentheses = 0;
+                        routine = NO_ROUTINE;
+                    }
+                }
+                case MariaDBLexer.LR_BRACKET -> {
+                    if (depth == 0) {
+                        parentheses++;
+                    }
+                }
+                case MariaDBLexer.RR_BRACKET -> {
+                    if (depth == 0 && parentheses > 0 && --parentheses == 0 && routine == ROUTINE) {
+                        routine = ROUTINE_HEADER;
+                    }
+                }
+                case MariaDBLexer.PROCEDURE, MariaDBLexer.FUNCTION, MariaDBLexer.TRIGGER -> {
+                    if (depth == 0 && parentheses == 0 && routine == NO_ROUTINE
+                            && tokens.getType(statementStart) == MariaDBLexer.CREATE) {
+                        routine = type == MariaDBLexer.TRIGGER ? ROUTINE_HEADER : ROUTINE;
+                    }
+                }
+                case MariaDBLexer.BEGIN -> {
+                    if (isCompoundBegin(tokens, i, statementStart, caseExpressions, depth, blockBegin)
+                            || (depth == 0 && parentheses == 0 && (routine == ROUTINE_HEADER || isEachRow(tokens, i))
+                                && isHeaderEnd(tokens, i))) {
+                        depth++;
+                        blockBegin = i;
+                    }
+                }
+                case MariaDBLexer.CASE -> {
+                    if (!isQualified(tokens, i)) {
+                        caseExpressions = isStatementStart(tokens, i, statementStart, caseExpressions, depth, blockBegin)
+                                ? caseExpressions & ~(1L << depth) : caseExpressions | (1L << depth);
+                        depth++;
+                    }
+                }
+                case MariaDBLexer.IF, MariaDBLexer.LOOP, MariaDBLexer.WHILE, MariaDBLexer.REPEAT, MariaDBLexer.FOR -> {
+                    if (isStatementStart(tokens, i, statementStart, caseExpressions, depth, blockBegin)) {
+                        depth++;
+                    }
+                }
+                case MariaDBLexer.END -> {
+                    if (depth > 0 && !isQualified(tokens, i)
+                            && ((caseExpressions & (1L << (depth - 1))) != 0
+                                // REPEAT ... UNTIL ends with an expression
+                                || tokens.getType(i + 1) == MariaDBLexer.REPEAT
+                                || isStatementStart(tokens, i, statementStart, caseExpressions, depth, blockBegin))) {
+                        depth--;
+                        // END IF, END CASE and the like close the same statement
+                        switch (tokens.getType(i + 1)) {
+                            case MariaDBLexer.IF, MariaDBLexer.CASE, MariaDBLexer.LOOP, MariaDBLexer.WHILE,
+                                 MariaDBLexer.REPEAT, MariaDBLexer.FOR -> i++;
+                            default -> {
+                            }
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static int[] add(int[] ends, int count, int end) {
+        if (count == ends.length) {
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        ends[count] = end;
+        return ends;
+    }
+
+    /**
+     * @return Whether the BEGIN at index opens a compound statement where a statement starts, rather
+     * than starting a transaction or naming something
+     */
+    private static boolean isCompoundBegin(CompactTokenStream tokens, int index, int statementStart,
+                                           long caseExpressions, int depth, int blockBegin) {
+        if (isQualified(tokens, index) || !isStatementStart(tokens, index, statementStart, caseExpressions, depth, blockBegin)) {
+            return false;
+        }
+        int next = tokens.getType(index + 1);
+        return index != statementStart
+                || (next != MariaDBLexer.SEMI && next != MariaDBLexer.WORK && next != Token.EOF);
+    }
+
+    /**
+     * @return Whether the token before index ends a routine or trigger header: the parameter list, a
+     * characteristic such as DETERMINISTIC or COMMENT '...', the RETURNS type, FOR EACH ROW, or the
+     * trigger named by FOLLOWS or PRECEDES
+     */
+    private static boolean isHeaderEnd(CompactTokenStream tokens, int index) {
+        return switch (tokens.getType(index - 1)) {
+            case MariaDBLexer.RR_BRACKET, MariaDBLexer.STRING_LITERAL, MariaDBLexer.DETERMINISTIC, MariaDBLexer.SQL,
+                 MariaDBLexer.DATA, MariaDBLexer.DEFINER, MariaDBLexer.INVOKER, MariaDBLexer.UNSIGNED,
+                 MariaDBLexer.SIGNED, MariaDBLexer.ZEROFILL -> true;
+            case MariaDBLexer.ROW -> isEachRow(tokens, index);
+            default -> switch (tokens.getType(index - 2)) {
+                // The word after these is the type, character set, collation or trigger they name
+                case MariaDBLexer.RETURNS, MariaDBLexer.CHARSET, MariaDBLexer.SET, MariaDBLexer.COLLATE,
+                     MariaDBLexer.FOLLOWS, MariaDBLexer.PRECEDES -> true;
+                default -> false;
+            };
+        };
+    }
+
+    /**
+     * @return Whether the tokens before index are EACH ROW, which end a trigger header even where the
+     * statement is not recognized as creating one
+     */
+    private static boolean isEachRow(CompactTokenStream tokens, int index) {
+        return index > 1 && tokens.getType(index - 1) == MariaDBLexer.ROW && tokens.getType(index - 2) == MariaDBLexer.EACH;
+    }
+
+    /**
+     * @return Whether the token at index is where a statement of a compound body can start
+     */
+    private static boolean isStatementStart(CompactTokenStream tokens, int index, int statementStart,
+                                            long caseExpressions, int depth, int blockBegin) {
+        if (index == statementStart) {
+            return true;
+        }
+        return switch (tokens.getType(index - 1)) {
+            case MariaDBLexer.SEMI, MariaDBLexer.DO, MariaDBLexer.LOOP, MariaDBLexer.REPEAT, MariaDBLexer.COLON_SYMB -> true;
+            case MariaDBLexer.BEGIN -> index - 1 == blockBegin;
+            case MariaDBLexer.THEN, MariaDBLexer.ELSE -> depth == 0 || (caseExpressions & (1L << (depth - 1))) == 0;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return Whether the keyword at index is part of a qualified name, as in t.end
+     */
+    private static boolean isQualified(CompactTokenStream tokens, int index) {
+        return (index > 0 && tokens.getType(index - 1) == MariaDBLexer.DOT) || tokens.getType(index + 1) == MariaDBLexer.DOT;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.sqlantlr.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * An UnbufferedTokenStream over a lexer reading an UnbufferedCharStream, so that text of any
+ * length is parsed holding only the tokens and characters the parser is still looking at.
+ *
+ * Like {@link CompactTokenStream}, it passes on only the default-channel tokens, and getText over a
+ * token range returns the source text from the first token's start to the last token's stop,
+ * whitespace and comments included. As the characters are released once lexed, each token carries
+ * a copy of its text and of the text between it and the previous default-channel token.
+ */
+public class StreamingTokenStream extends UnbufferedTokenStream<Token> {
+
+    // Index of the furthest token looked at since resetLookahead
+    private int lookaheadIndex;
+
+    /**
+     * Installs its own token factory in the lexer, which the caller restores when done with the stream
+     * @param lexer A lexer positioned at the start of its input
+     */
+    public StreamingTokenStream(Lexer lexer) {
+        // Installed before the superclass reads the first token
+        super(withSourceTextTokens(lexer));
+    }
+
+    private static TokenSource withSourceTextTokens(Lexer lexer) {
+        lexer.setTokenFactory(new SourceTextTokenFactory());
+        return new DefaultChannelSource(lexer);
+    }
+
+    @Override
+    public Token LT(int i) {
+        if (i > 0) {
+            lookaheadIndex = Math.max(lookaheadIndex, currentTokenIndex + i - 1);
+        }
+        return super.LT(i);
+    }
+
+    /**
+     * Starts tracking the furthest token looked at from the current one on
+     */
+    void resetLookahead() {
+        lookaheadIndex = currentTokenIndex;
+    }
+
+    /**
+     * @return Index of the furthest token looked at through LA or LT since {@link #resetLookahead()}
+     */
+    int getLookaheadIndex() {
+        return lookaheadIndex;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int bufferStartIndex = getBufferStartIndex();
+        int start = interval.a;
+        int stop = interval.b;
+        if (start < bufferStartIndex || stop >= bufferStartIndex + n) {
+            throw new UnsupportedOperationException("interval " + interval + " not in token buffer window: "
+                    + bufferStartIndex + ".." + (bufferStartIndex + n - 1));
+        }
+
+        StringBuilder buf = new StringBuilder();
+        for (int i = start - bufferStartIndex; i <= stop - bufferStartIndex; i++) {
+            Token t = tokens[i];
+            // Like CommonTokenStream, EOF contributes no text
+            if (t.getType() == Token.EOF) {
+                break;
+            }
+            if (i > start - bufferStartIndex) {
+                buf.append(((SourceTextToken) t).precedingText);
+            }
+            buf.append(t.getText());
+        }
+        return buf.toString();
+    }
+
+    /**
+     * A token with the source text between the previous default-channel token and itself
+     */
+    private static final class SourceTextToken extends CommonToken {
+        private final String precedingText;
+
+        SourceTextToken(Pair<TokenSource, CharStream> source, int type, int channel, int start, int stop,
+                        String precedingText) {
+            super(source, type, channel, start, stop);
+            this.precedingText = precedingText;
+        }
+    }
+
+    /**
+     * Creates SourceTextTokens, copying text out of the char stream while the lexer still holds it
+     */
+    private static final class SourceTextTokenFactory implements TokenFactory<CommonToken> {
+
+        // Start of the text not yet covered by a token, and the text of off-channel tokens since the last default one
+        private int nextStart;
+        private final StringBuilder skipped = new StringBuilder();
+
+        @Override
+        public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel,
+                                  int start, int stop, int line, int charPositionInLine) {
+            if (start < 0) {
+                // A token conjured by error recovery, with no source text
+                CommonToken token = new CommonToken(source, type, channel, start, stop);
+                token.setLine(line);
+                token.setCharPositionInLine(charPositionInLine);
+                token.setText(text);
+                return token;
+            }
+            CharStream input = source.b;
+            String gap = start > nextStart ? input.getText(Interval.of(nextStart, start - 1)) : "";
+            nextStart = stop + 1;
+            if (channel != Token.DEFAULT_CHANNEL && type != Token.EOF) {
+                skipped.append(gap).append(input.getText(Interval.of(start, stop)));
+                gap = "";
+            }
+            String preceding = gap;
+            if (skipped.length() > 0 && channel == Token.DEFAULT_CHANNEL) {
+                preceding = skipped.append(gap).toString();
+                skipped.setLength(0);
+            }
+            SourceTextToken token = new SourceTextToken(source, type, channel, start, stop, preceding);
+            token.setLine(line);
+            token.setCharPositionInLine(charPositionInLine);
+            token.setText(text != null ? text : input.getText(Interval.of(start, stop)));
+            return token;
+        }
+
+        @Override
+        public CommonToken create(int type, String text) {
+            return new CommonToken(type, text);
+        }
+    }
+
+    /**
+     * Passes on only the default-channel tokens of a source; UnbufferedTokenStream itself passes on all of them
+     */
+    private static final class DefaultChannelSource implements TokenSource {
+        private final TokenSource source;
+
+        DefaultChannelSource(TokenSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public Token nextToken() {
+            Token token = source.nextToken();
+            while (token.getChannel() != Token.DEFAULT_CHANNEL && token.getType() != Token.EOF) {
+                token = source.nextToken();
+            }
+            return token;
+        }
+
+        @Override
+        public int getLine() {
+            return source.getLine();
+        }
+
+        @Override
+        public int getCharPositionInLine() {
+            return source.getCharPositionInLine();
+        }
+
+        @Override
+        public CharStream getInputStream() {
+            return source.getInputStream();
+        }
+
+        @Override
+        public String getSourceName() {
+            return source.getSourceName();
+        }
+
+        @Override
+        public void setTokenFactory(TokenFactory<?> factory) {
+            source.setTokenFactory(factory);
+        }
+
+        @Override
+        public TokenFactory<?> getTokenFactory() {
+            return source.getTokenFactory();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.sqlantlr.parser;
+
+import com.sql.validator.MariaDBLexer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A MariaDBLexer for validation, which skips whitespace and comments instead of emitting them.
+ *
+ * SPACE, COMMENT_INPUT and LINE_COMMENT send their tokens to the HIDDEN channel, which only
+ * matters to tools that read the text back from the token stream. Here their channel action is
+ * turned into a skip, so the lexer matches them as before but never creates or returns a token
+ * for them. Line and column tracking is unaffected, and tokens on the other channels are emitted
+ * as usual.
+ *
+ * Characters no other rule matches end up on ERRORCHANNEL, out of the parser's sight. The lexer
+ * records where they were, so a statement containing one can be rejected without parsing it.
+ */
+public class ValidationLexer extends MariaDBLexer {
+
+    // Unrecognized characters since the last reset, in input order
+    private final List<UnrecognizedChar> unrecognized = new ArrayList<>();
+    private int unrecognizedCount;
+
+    // Unrecognized characters recorded per reset; later ones are only counted
+    private int maxRecorded = Integer.MAX_VALUE;
+
+    public ValidationLexer(CharStream input) {
+        super(input);
+    }
+
+    @Override
+    public void setChannel(int channel) {
+        if (channel == HIDDEN) {
+            skip();
+            return;
+        }
+        if (channel == ERRORCHANNEL && unrecognizedCount++ < maxRecorded) {
+            String text = _input.getText(Interval.of(_tokenStartCharIndex, getCharIndex() - 1));
+            unrecognized.add(new UnrecognizedChar(_tokenStartCharIndex, _tokenStartLine,
+                    _tokenStartCharPositionInLine, getErrorDisplay(text)));
+        }
+        super.setChannel(channel);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        unrecognized.clear();
+        unrecognizedCount = 0;
+    }
+
+    /**
+     * Limits how many unrecognized characters are recorded, so lexing input of any length takes bounded memory
+     * @param maxRecorded Characters recorded per reset, or Integer.MAX_VALUE for all of them
+     */
+    public void setMaxRecordedUnrecognized(int maxRecorded) {
+        this.maxRecorded = maxRecorded;
+    }
+
+    /**
+     * @return Number of unrecognized characters lexed since the last reset, including any not recorded
+     */
+    public int getUnrecognizedCount() {
+        return unrecognizedCount;
+    }
+
+    /**
+     * @return Whether any unrecognized character has been lexed since the last reset
+     */
+    public boolean hasUnrecognizedInput() {
+        return !unrecognized.isEmpty();
+    }
+
+    /**
+     * @return The unrecognized characters lexed so far that start within [startIndex, stopIndex] of the input
+     */
+    public List<UnrecognizedChar> getUnrecognizedInput(int startIndex, int stopIndex) {
+        // Binary search for the first one at or after startIndex
+        int low = 0;
+        int high = unrecognized.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (unrecognized.get(mid).getStartIndex() < startIndex) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < unrecognized.size() && unrecognized.get(end).getStartIndex() <= stopIndex) {
+            end++;
+        }
+        return unrecognized.subList(low, end);
+    }
+
+    /**
+     * A character the lexer sent to ERRORCHANNEL
+     */
+    public static final class UnrecognizedChar {
+        private final int startIndex;
+        private final int line;
+        private final int charPositionInLine;
+        private final String text;
+
+        UnrecognizedChar(int startIndex, int line, int charPositionInLine, String text) {
+            this.startIndex = startIndex;
+            this.line = line;
+            this.charPositionInLine = charPositionInLine;
+            this.text = text;
+        }
+
+        public int getStartIndex() {
+            return startIndex;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getCharPositionInLine() {
+            return charPositionInLine;
+        }
+
+        /**
+         * @return The character, with control characters escaped for display
+         */
+        public String getText() {
+            return text;
+        }
+    }
+}
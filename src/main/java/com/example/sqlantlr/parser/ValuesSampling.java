@@ -0,0 +1,249 @@
+package com.example.sqlantlr.parser;
+
+import com.sql.validator.MariaDBLexer;
+import org.antlr.v4.runtime.Token;
+
+import java.util.Arrays;
+
+/**
+ * Sampled validation of long INSERT/REPLACE ... VALUES tuple lists, such as the extended INSERTs of
+ * mysqldump. The statement header, the first few tuples and whatever follows the list are left to
+ * the parser; the tuples after those are checked by a scan over their token types and, if they
+ * pass, dropped from the token stream before parsing. A tuple that fails the scan leaves its
+ * statement to be parsed in full, so its errors are reported exactly as before. SqlParserEngine
+ * also parses a sampled statement again in full when it has syntax errors, since error recovery
+ * may read on into the dropped tuples.
+ *
+ * The check depends on the mode:
+ * <ul>
+ *   <li>STRICT: every value is a literal, DEFAULT or NULL, so a dropped tuple is always valid
+ *   and whether a statement is valid is the same as without sampling;</li>
+ *   <li>LENIENT: parentheses are balanced and no ';' appears, so a syntax error inside a dropped
+ *   tuple goes unreported;</li>
+ *   <li>OFF: every tuple is parsed.</li>
+ * </ul>
+ */
+public final class ValuesSampling {
+
+    public static final ValuesSampling OFF = new ValuesSampling(Mode.OFF, 0);
+
+    public enum Mode {
+        OFF,
+        STRICT,
+        LENIENT
+    }
+
+    private final Mode mode;
+    private final int parsedRows;
+
+    /**
+     * @param parsedRows Tuples of each list that are parsed before the rest are only scanned
+     */
+    public ValuesSampling(Mode mode, int parsedRows) {
+        this.mode = mode;
+        this.parsedRows = Math.max(1, parsedRows);
+    }
+
+    public boolean isEnabled() {
+        return mode != Mode.OFF;
+    }
+
+    /**
+     * Drops the tuples past the sampled ones from every INSERT/REPLACE ... VALUES statement in a
+     * fully lexed stream that has not been read yet
+     * @return Number of tuples dropped
+     */
+    public int apply(CompactTokenStream tokens) {
+        if (mode == Mode.OFF) {
+            return 0;
+        }
+        int[] ranges = new int[8];
+        int rangeCount = 0;
+        int dropped = 0;
+        int size = tokens.size();
+        int i = 0;
+        while (i < size && tokens.getType(i) != Token.EOF) {
+            int type = tokens.getType(i);
+            if (type == MariaDBLexer.INSERT || type == MariaDBLexer.REPLACE) {
+                int[] range = sampleStatement(tokens, i);
+                if (range != null) {
+                    if (rangeCount == ranges.length) {
+                        ranges = Arrays.copyOf(ranges, rangeCount * 2);
+                    }
+                    ranges[rangeCount++] = range[0];
+                    ranges[rangeCount++] = range[1];
+                    dropped += range[2];
+                    i = range[1];
+                }
+            }
+            i = nextStatement(tokens, i);
+        }
+        if (rangeCount > 0) {
+            tokens.removeRanges(ranges, rangeCount);
+        }
+        return dropped;
+    }
+
+    /**
+     * @return The index after the next ';' outside parentheses from index on, or the index of EOF
+     */
+    private static int nextStatement(CompactTokenStream tokens, int index) {
+        int depth = 0;
+        while (true) {
+            int type = tokens.getType(index);
+            if (type == Token.EOF) {
+                return index;
+            }
+            index++;
+            if (type == MariaDBLexer.LR_BRACKET) {
+                depth++;
+            } else if (type == MariaDBLexer.RR_BRACKET && depth > 0) {
+                depth--;
+            } else if (type == MariaDBLexer.SEMI && depth == 0) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * @param start Index of the statement's INSERT or REPLACE
+     * @return The range [from, to) of tokens to drop and the number of tuples in it, or null if
+     * the statement has no VALUES list longer than the sample or a tuple past it fails the check
+     */
+    private int[] sampleStatement(CompactTokenStream tokens, int start) {
+        int open = findValues(tokens, start + 1);
+        if (open < 0) {
+            return null;
+        }
+        int rows = 0;
+        int sampledEnd = -1;
+        while (true) {
+            int close = rows < parsedRows ? matchParenthesis(tokens, open) : checkTuple(tokens, open);
+            if (close < 0) {
+                return null;
+            }
+            rows++;
+            if (rows == parsedRows) {
+                sampledEnd = close;
+            }
+            if (tokens.getType(close + 1) != MariaDBLexer.COMMA || tokens.getType(close + 2) != MariaDBLexer.LR_BRACKET) {
+                // From the ',' after the last sampled tuple to the end of the list
+                return rows > parsedRows ? new int[] {sampledEnd + 1, close + 1, rows - parsedRows} : null;
+            }
+            open = close + 2;
+        }
+    }
+
+    /**
+     * @return Index of the '(' opening the VALUES list of the statement, or -1 if it has none
+     */
+    private static int findValues(CompactTokenStream tokens, int index) {
+        int depth = 0;
+        while (true) {
+            int type = tokens.getType(index);
+            if (type == Token.EOF || (type == MariaDBLexer.SEMI && depth == 0)) {
+                return -1;
+            }
+            if (type == MariaDBLexer.LR_BRACKET) {
+                depth++;
+            } else if (type == MariaDBLexer.RR_BRACKET) {
+                depth--;
+            } else if (depth == 0 && (type == MariaDBLexer.VALUES || type == MariaDBLexer.VALUE)
+                    && tokens.getType(index + 1) == MariaDBLexer.LR_BRACKET) {
+                return index + 1;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * @return Index of the ')' closing the '(' at open, or -1 if the statement ends first
+     */
+    private static int matchParenthesis(CompactTokenStream tokens, int open) {
+        int depth = 0;
+        for (int index = open; ; index++) {
+            int type = tokens.getType(index);
+            if (type == Token.EOF || type == MariaDBLexer.SEMI) {
+                return -1;
+            }
+            if (type == MariaDBLexer.LR_BRACKET) {
+                depth++;
+            } else if (type == MariaDBLexer.RR_BRACKET && --depth == 0) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * @return Index of the ')' closing the tuple opened at open, or -1 if it fails the mode's check
+     */
+    private int checkTuple(CompactTokenStream tokens, int open) {
+        if (mode == Mode.LENIENT) {
+            return matchParenthesis(tokens, open);
+        }
+        int index = open + 1;
+        if (tokens.getType(index) == MariaDBLexer.RR_BRACKET) {
+            return index;
+        }
+        while (true) {
+            index = skipLiteral(tokens, index);
+            if (index < 0) {
+                return -1;
+            }
+            int type = tokens.getType(index);
+            if (type == MariaDBLexer.RR_BRACKET) {
+                return index;
+            }
+            if (type != MariaDBLexer.COMMA) {
+                return -1;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Matches one value that is valid wherever expressionOrDefault is: a constant the grammar's
+     * constant rule accepts, or DEFAULT
+     * @return Index after the value, or -1 if the tokens at index are not one
+     */
+    private static int skipLiteral(CompactTokenStream tokens, int index) {
+        switch (tokens.getType(index)) {
+            case MariaDBLexer.MINUS:
+                return isDecimal(tokens.getType(index + 1)) ? index + 2 : -1;
+            case MariaDBLexer.STRING_CHARSET_NAME:
+                if (tokens.getType(index + 1) == MariaDBLexer.HEXADECIMAL_LITERAL) {
+                    return index + 2;
+                }
+                return tokens.getType(index + 1) == MariaDBLexer.STRING_LITERAL ? skipStrings(tokens, index + 2) : -1;
+            case MariaDBLexer.STRING_LITERAL:
+            case MariaDBLexer.START_NATIONAL_STRING_LITERAL:
+                return skipStrings(tokens, index + 1);
+            case MariaDBLexer.HEXADECIMAL_LITERAL:
+            case MariaDBLexer.BIT_STRING:
+            case MariaDBLexer.TRUE:
+            case MariaDBLexer.FALSE:
+            case MariaDBLexer.NULL_LITERAL:
+            case MariaDBLexer.NULL_SPEC_LITERAL:
+            case MariaDBLexer.DEFAULT:
+                return index + 1;
+            default:
+                return isDecimal(tokens.getType(index)) ? index + 1 : -1;
+        }
+    }
+
+    /**
+     * @return Index after the STRING_LITERALs that continue a string literal from index on
+     */
+    private static int skipStrings(CompactTokenStream tokens, int index) {
+        while (tokens.getType(index) == MariaDBLexer.STRING_LITERAL) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isDecimal(int type) {
+        return type == MariaDBLexer.DECIMAL_LITERAL || type == MariaDBLexer.ZERO_DECIMAL
+                || type == MariaDBLexer.ONE_DECIMAL || type == MariaDBLexer.TWO_DECIMAL
+                || type == MariaDBLexer.REAL_LITERAL;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.sqlantlr.service;
+
+import com.example.sqlantlr.parser.DfaSnapshot;
+import com.sql.validator.MariaDBLexer;
+import com.sql.validator.MariaDBParser;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Persists the learned lexer/parser DFA states so a restarted instance starts with hot caches.
+ *
+ * The snapshot is loaded while the application context starts, before the parser warm-up runs,
+ * and written again at shutdown or on demand.
+ */
+@Service
+public class DfaSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(DfaSnapshotService.class);
+
+    private final Path snapshotFile;
+    private final boolean saveOnShutdown;
+
+    // Only used to reach the static DFA arrays shared by every MariaDBLexer/MariaDBParser instance
+    private final MariaDBLexer lexer = new MariaDBLexer(CharStreams.fromString(""));
+    private final MariaDBParser parser = new MariaDBParser(new CommonTokenStream(lexer));
+
+    public DfaSnapshotService(@Value("${sql.validator.dfa-snapshot.path:}") String snapshotPath,
+                              @Value("${sql.validator.dfa-snapshot.save-on-shutdown:true}") boolean saveOnShutdown) {
+        this.snapshotFile = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.saveOnShutdown = saveOnShutdown;
+    }
+
+    public boolean isEnabled() {
+        return snapshotFile != null;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!isEnabled() || !Files.isRegularFile(snapshotFile)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            int loaded = DfaSnapshot.load(snapshotFile, lexer, parser);
+            if (loaded < 0) {
+                log.info("DFA snapshot {} was written for another grammar version, ignoring it", snapshotFile);
+            } else {
+                log.info("Loaded {} DFA states from {} in {} ms", loaded, snapshotFile,
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not load DFA snapshot {}, starting cold", snapshotFile, e);
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        if (isEnabled() && saveOnShutdown) {
+            try {
+                save();
+            } catch (IOException e) {
+                log.warn("Could not write DFA snapshot {}", snapshotFile, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the current DFA states to the snapshot file
+     *
+     * @return The number of DFA states written
+     * @throws IOException If the file cannot be written
+     */
+    public int save() throws IOException {
+        if (!isEnabled()) {
+            throw new IllegalStateException("No DFA snapshot path configured (sql.validator.dfa-snapshot.path)");
+        }
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        int written = DfaSnapshot.save(snapshotFile, lexer, parser);
+        log.info("Wrote {} DFA states to {}", written, snapshotFile);
+        return written;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.sqlantlr.service;
+
+import com.sql.validator.MariaDBParser;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Aggregates ANTLR decision profiles of sampled statements. A sampled statement is parsed with a
+ * ProfilingATNSimulator, and its DecisionInfo is added up per decision; the report rolls the
+ * decisions up by the grammar rule they belong to and ranks the rules by prediction time.
+ */
+public class GrammarProfiler {
+
+    private static final ATN ATN = MariaDBParser._ATN;
+
+    private final double sampleRate;
+
+    // Per-decision totals, indexed by decision number; guarded by this
+    private final int decisions = ATN.getNumberOfDecisions();
+    private final long[] invocations = new long[decisions];
+    private final long[] timeInPrediction = new long[decisions];
+    private final long[] sllTotalLook = new long[decisions];
+    private final long[] sllMaxLook = new long[decisions];
+    private final long[] sllAtnTransitions = new long[decisions];
+    private final long[] llFallbacks = new long[decisions];
+    private final long[] llTotalLook = new long[decisions];
+    private final long[] llMaxLook = new long[decisions];
+    private final long[] llAtnTransitions = new long[decisions];
+    private final long[] ambiguities = new long[decisions];
+    private final long[] contextSensitivities = new long[decisions];
+    private final long[] errors = new long[decisions];
+    private long profiledStatements;
+
+    /**
+     * @param sampleRate Fraction of statements to profile, from 0 (never) to 1 (always)
+     */
+    public GrammarProfiler(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return Whether the next statement should be profiled
+     */
+    public boolean shouldSample() {
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Adds the decision profile of one parse
+     */
+    public synchronized void record(DecisionInfo[] parseDecisions) {
+        profiledStatements++;
+        for (DecisionInfo info : parseDecisions) {
+            if (info.invocations == 0) {
+                continue;
+            }
+            int d = info.decision;
+            invocations[d] += info.invocations;
+            timeInPrediction[d] += info.timeInPrediction;
+            sllTotalLook[d] += info.SLL_TotalLook;
+            sllMaxLook[d] = Math.max(sllMaxLook[d], info.SLL_MaxLook);
+            sllAtnTransitions[d] += info.SLL_ATNTransitions;
+            llFallbacks[d] += info.LL_Fallback;
+            llTotalLook[d] += info.LL_TotalLook;
+            llMaxLook[d] = Math.max(llMaxLook[d], info.LL_MaxLook);
+            llAtnTransitions[d] += info.LL_ATNTransitions;
+            ambiguities[d] += info.ambiguities.size();
+            contextSensitivities[d] += info.contextSensitivities.size();
+            errors[d] += info.errors.size();
+        }
+    }
+
+    /**
+     * Discards everything recorded so far
+     */
+    public synchronized void reset() {
+        profiledStatements = 0;
+        for (long[] totals : List.of(invocations, timeInPrediction, sllTotalLook, sllMaxLook, sllAtnTransitions,
+                llFallbacks, llTotalLook, llMaxLook, llAtnTransitions, ambiguities, contextSensitivities, errors)) {
+            Arrays.fill(totals, 0);
+        }
+    }
+
+    /**
+     * @param limit Maximum number of rules to include; none if it is negative
+     * @return The sample rate, the number of profiled statements and the rules ranked by prediction time
+     */
+    public synchronized Map<String, Object> toMap(int limit) {
+        Map<String, RuleProfile> rules = new LinkedHashMap<>();
+        for (int d = 0; d < decisions; d++) {
+            if (invocations[d] == 0) {
+                continue;
+            }
+            String rule = MariaDBParser.ruleNames[ATN.getDecisionState(d).ruleIndex];
+            rules.computeIfAbsent(rule, RuleProfile::new).add(d);
+        }
+
+        List<RuleProfile> ranked = new ArrayList<>(rules.values());
+        ranked.sort(Comparator.comparingLong((RuleProfile rule) -> rule.timeInPrediction).reversed());
+
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (RuleProfile rule : ranked.subList(0, Math.max(0, Math.min(limit, ranked.size())))) {
+            report.add(rule.toMap());
+        }
+
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("sampleRate", sampleRate);
+        profile.put("profiledStatements", profiledStatements);
+        profile.put("rules", report);
+        return profile;
+    }
+
+    /**
+     * Totals of the decisions of one rule
+     */
+    private class RuleProfile {
+        private final String rule;
+        private int decisionCount;
+        private long invocations;
+        private long timeInPrediction;
+        private long sllTotalLook;
+        private long sllMaxLook;
+        private long sllAtnTransitions;
+        private long llFallbacks;
+        private long llTotalLook;
+        private long llMaxLook;
+        private long llAtnTransitions;
+        private long ambiguities;
+        private long contextSensitivities;
+        private long errors;
+
+        RuleProfile(String rule) {
+            this.rule = rule;
+        }
+
+        void add(int d) {
+            decisionCount++;
+            invocations += GrammarProfiler.this.invocations[d];
+            timeInPrediction += GrammarProfiler.this.timeInPrediction[d];
+            sllTotalLook += GrammarProfiler.this.sllTotalLook[d];
+            sllMaxLook = Math.max(sllMaxLook, GrammarProfiler.this.sllMaxLook[d]);
+            sllAtnTransitions += GrammarProfiler.this.sllAtnTransitions[d];
+            llFallbacks += GrammarProfiler.this.llFallbacks[d];
+            llTotalLook += GrammarProfiler.this.llTotalLook[d];
+            llMaxLook = Math.max(llMaxLook, GrammarProfiler.this.llMaxLook[d]);
+            llAtnTransitions += GrammarProfiler.this.llAtnTransitions[d];
+            ambiguities += GrammarProfiler.this.ambiguities[d];
+            contextSensitivities += GrammarProfiler.this.contextSensitivities[d];
+            errors += GrammarProfiler.this.errors[d];
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> profile = new LinkedHashMap<>();
+            profile.put("rule", rule);
+            profile.put("decisions", decisionCount);
+            profile.put("invocations", invocations);
+            profile.put("predictionMillis", timeInPrediction / 1_000_000.0);
+            profile.put("sllTotalLookahead", sllTotalLook);
+            profile.put("sllMaxLookahead", sllMaxLook);
+            profile.put("sllAtnTransitions", sllAtnTransitions);
+            profile.put("llFallbacks", llFallbacks);
+            profile.put("llTotalLookahead", llTotalLook);
+            profile.put("llMaxLookahead", llMaxLook);
+            profile.put("llAtnTransitions", llAtnTransitions);
+            profile.put("ambiguities", ambiguities);
+            profile.put("contextSensitivities", contextSensitivities);
+            profile.put("errors", errors);
+            return profile;
+        }
+    }
+}
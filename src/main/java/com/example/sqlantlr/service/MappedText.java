@@ -0,0 +1,74 @@
+package com.example.sqlantlr.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The text of a UTF-8 file mapped into memory, read in place rather than decoded into a String.
+ *
+ * Each byte is one char: ASCII reads as itself and every byte of a multi-byte character as a char
+ * from 0x80 to 0xFF. What splitting and lexing look for (quotes, delimiters, keywords, line breaks)
+ * is ASCII, and non-ASCII characters lex as parts of identifiers, strings and comments either way,
+ * so statements are found and checked as in the decoded text; only columns in error messages count
+ * bytes. subSequence and toString decode their bytes, so statement and token text is the real text.
+ */
+public final class MappedText implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private final int length;
+
+    private MappedText(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.length = bytes.capacity();
+    }
+
+    /**
+     * Maps a whole file; the mapping lasts until the text is no longer referenced
+     * @throws IOException If the file cannot be read, or is 2GB or more
+     */
+    public static MappedText map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + size + " bytes");
+            }
+            return new MappedText(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        // Absolute gets leave the buffer's position alone, so threads can read the text at once
+        return (char) (bytes.get(index) & 0xFF);
+    }
+
+    /**
+     * @return The decoded text of the range
+     */
+    @Override
+    public String subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") outside text of length " + length);
+        }
+        byte[] range = new byte[end - start];
+        bytes.get(start, range);
+        return new String(range, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.sqlantlr.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a large script into statements on several threads, finding the same statements as
+ * {@link StatementScanner#scan(CharSequence)}.
+ *
+ * The script is cut into chunks at line breaks, and each chunk is scanned on its own as if a
+ * statement started there with the delimiter ';'. That guess is wrong when a chunk starts inside a
+ * statement, string, comment or DELIMITER block, so a sequential pass then goes through the script,
+ * taking a chunk's statements as they are from the first point between statements where the
+ * chunk's scan and its own are at the same position with the same delimiter: from there on both see
+ * the same text in the same state. That is usually after the chunk's first statement, so the
+ * sequential pass only scans about one statement per chunk itself.
+ */
+public final class ParallelStatementScanner {
+
+    private ParallelStatementScanner() {
+    }
+
+    /**
+     * @param executor Runs the chunk scans
+     * @param chunks How many chunks to cut the script into, at most
+     * @return The statements of the script
+     */
+    public static StatementSpans scan(CharSequence text, ExecutorService executor, int chunks) {
+        int[] bounds = chunkBounds(text, chunks);
+        if (bounds.length < 3) {
+            return StatementScanner.scan(text);
+        }
+        List<Callable<Chunk>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int c = 0; c + 1 < bounds.length; c++) {
+            int from = bounds[c];
+            int to = bounds[c + 1];
+            tasks.add(() -> Chunk.scan(text, from, to));
+        }
+
+        List<Future<Chunk>> futures;
+        try {
+            futures = executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while splitting script", e);
+        }
+
+        StatementSpans spans = new StatementSpans();
+        StatementScanner scanner = new StatementScanner(text);
+        for (Future<Chunk> future : futures) {
+            Chunk chunk;
+            try {
+                chunk = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while splitting script", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Parallel split failed", e.getCause());
+            }
+            if (!merge(chunk, scanner, spans)) {
+                return spans;
+            }
+        }
+        while (scanner.next()) {
+            spans.add(scanner.getStart(), scanner.getStop() - scanner.getStart(), scanner.getLine(), scanner.isTerminated());
+        }
+        return spans;
+    }
+
+    /**
+     * Scans on from the scanner's position until it meets the chunk's scan, then takes the rest of
+     * the chunk's statements and moves the scanner past them; or until it leaves the chunk without
+     * meeting it
+     * @return Whether any text is left to scan
+     */
+    private static boolean merge(Chunk chunk, StatementScanner scanner, StatementSpans spans) {
+        int point = 0;
+        while (true) {
+            int position = scanner.getPosition();
+            while (point < chunk.points && chunk.positions[point] < position) {
+                point++;
+            }
+            if (point < chunk.points && chunk.positions[point] == position
+                    && chunk.delimiters[point].equals(scanner.getDelimiter())) {
+                int lineOffset = scanner.getCurrentLine() - chunk.lines[point];
+                for (int i = point; i < chunk.spans.size(); i++) {
+                    spans.add(chunk.spans.getOffset(i), chunk.spans.getLength(i), chunk.spans.getLine(i) + lineOffset, true);
+                }
+                int last = chunk.points - 1;
+                scanner.moveTo(chunk.positions[last], chunk.lines[last] + lineOffset, chunk.delimiters[last]);
+                return true;
+            }
+            if (position >= chunk.end) {
+                return true;
+            }
+            if (!scanner.next()) {
+                return false;
+            }
+            spans.add(scanner.getStart(), scanner.getStop() - scanner.getStart(), scanner.getLine(), scanner.isTerminated());
+        }
+    }
+
+    /**
+     * Cuts the text into at most chunks ranges of about the same length, each starting at the start of a line
+     * @return Range boundaries; chunk c covers [bounds[c], bounds[c + 1])
+     */
+    private static int[] chunkBounds(CharSequence text, int chunks) {
+        int length = text.length();
+        int[] bounds = new int[chunks + 1];
+        int count = 0;
+        for (int c = 1; c < chunks; c++) {
+            int bound = Math.max((int) ((long) length * c / chunks), bounds[count] + 1);
+            while (bound < length && text.charAt(bound - 1) != '\n') {
+                bound++;
+            }
+            if (bound >= length) {
+                break;
+            }
+            bounds[++count] = bound;
+        }
+        bounds[++count] = length;
+        return Arrays.copyOf(bounds, count + 1);
+    }
+
+    /**
+     * The statements found by scanning one chunk on its own, and the points between them
+     */
+    private static final class Chunk {
+        final StatementSpans spans = new StatementSpans();
+        final int end;
+
+        // Point p is where statement p starts being scanned, after the one before it, and the last
+        // point is after the last statement; lines count from 1 at the chunk's start
+        int[] positions = new int[64];
+        int[] lines = new int[64];
+        String[] delimiters = new String[64];
+        int points;
+
+        private Chunk(int end) {
+            this.end = end;
+        }
+
+        /**
+         * Scans text[from, to), keeping the statements ended by a delimiter within it
+         */
+        static Chunk scan(CharSequence text, int from, int to) {
+            Chunk chunk = new Chunk(to);
+            StatementScanner scanner = new StatementScanner("");
+            scanner.resume(text, from, to, false, 1, ";");
+            chunk.addPoint(from, 1, ";");
+            while (scanner.next() && scanner.isTerminated()) {
+                chunk.spans.add(scanner.getStart(), scanner.getStop() - scanner.getStart(), scanner.getLine(), true);
+                chunk.addPoint(scanner.getPosition(), scanner.getCurrentLine(), scanner.getDelimiter());
+            }
+            return chunk;
+        }
+
+        private void addPoint(int position, int line, String delimiter) {
+            if (points == positions.length) {
+                int capacity = points * 2;
+                positions = Arrays.copyOf(positions, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+                delimiters = Arrays.copyOf(delimiters, capacity);
+            }
+            positions[points] = position;
+            lines[points] = line;
+            delimiters[points] = delimiter;
+            points++;
+        }
+    }
+}
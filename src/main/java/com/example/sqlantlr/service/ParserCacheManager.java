@@ -0,0 +1,251 @@
+package com.example.sqlantlr.service;
+
+import com.sql.validator.MariaDBLexer;
+import com.sql.validator.MariaDBParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the static DFA and PredictionContextCache of MariaDBLexer/MariaDBParser bounded.
+ *
+ * Every parse holds the read lock of this manager. Every checkInterval parses one thread measures
+ * the caches, and when a threshold is exceeded it takes the write lock, waits for in-flight parses
+ * to finish, clears the caches and publishes a {@link CacheResetEvent} so they can be rewarmed.
+ * A script counts each of its statements as a parse, and long parses call {@link #yieldToReset()}
+ * as they go, so a reset, and every parse queued behind it, waits for no more than a statement.
+ */
+@Service
+public class ParserCacheManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ParserCacheManager.class);
+
+    // Rough per-object heap costs used for the size estimate
+    private static final long DFA_STATE_BYTES = 120;
+    private static final long CONFIG_BYTES = 40;
+    private static final long CONTEXT_BYTES = 48;
+    private static final long ARRAY_HEADER_BYTES = 16;
+    private static final long REFERENCE_BYTES = 4;
+
+    private final long maxDfaStates;
+    private final long maxEstimatedBytes;
+    private final long checkInterval;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Only used to reach the static caches shared by every MariaDBLexer/MariaDBParser instance
+    private final MariaDBLexer lexer = new MariaDBLexer(CharStreams.fromString(""));
+    private final MariaDBParser parser = new MariaDBParser(new CommonTokenStream(lexer));
+
+    private final ReentrantReadWriteLock parseLock = new ReentrantReadWriteLock();
+    private final Lock checkLock = new ReentrantLock();
+    private final AtomicLong parsesSinceCheck = new AtomicLong();
+
+    // Reset history, written under checkLock
+    private volatile long resets;
+    private volatile Instant lastReset;
+    private volatile CacheSize sizeAtLastReset;
+
+    /**
+     * Creates a manager that never resets the caches, for use outside a Spring context
+     */
+    public ParserCacheManager() {
+        this(0, 0, 0, event -> { });
+    }
+
+    @Autowired
+    public ParserCacheManager(@Value("${sql.validator.cache.max-dfa-states:100000}") long maxDfaStates,
+                              @Value("${sql.validator.cache.max-estimated-bytes:268435456}") long maxEstimatedBytes,
+                              @Value("${sql.validator.cache.check-interval:1000}") long checkInterval,
+                              ApplicationEventPublisher eventPublisher) {
+        this.maxDfaStates = maxDfaStates;
+        this.maxEstimatedBytes = maxEstimatedBytes;
+        this.checkInterval = checkInterval;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Published after the caches have been cleared
+     */
+    public static class CacheResetEvent {
+        private final CacheSize sizeBeforeReset;
+
+        public CacheResetEvent(CacheSize sizeBeforeReset) {
+            this.sizeBeforeReset = sizeBeforeReset;
+        }
+
+        public CacheSize getSizeBeforeReset() {
+            return sizeBeforeReset;
+        }
+    }
+
+    /**
+     * Current size of the shared caches
+     */
+    public static class CacheSize {
+        private final long parserDfaStates;
+        private final long lexerDfaStates;
+        private final long contextCacheEntries;
+        private final long estimatedBytes;
+
+        public CacheSize(long parserDfaStates, long lexerDfaStates, long contextCacheEntries, long estimatedBytes) {
+            this.parserDfaStates = parserDfaStates;
+            this.lexerDfaStates = lexerDfaStates;
+            this.contextCacheEntries = contextCacheEntries;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public long getDfaStates() {
+            return parserDfaStates + lexerDfaStates;
+        }
+
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> size = new LinkedHashMap<>();
+            size.put("parserDfaStates", parserDfaStates);
+            size.put("lexerDfaStates", lexerDfaStates);
+            size.put("contextCacheEntries", contextCacheEntries);
+            size.put("estimatedBytes", estimatedBytes);
+            return size;
+        }
+    }
+
+    /**
+     * Must be called before a parse; pairs with {@link #afterParse()}
+     */
+    public void beforeParse() {
+        parseLock.readLock().lock();
+    }
+
+    /**
+     * Must be called after a parse, by the thread that called {@link #beforeParse()}
+     */
+    public void afterParse() {
+        parseLock.readLock().unlock();
+        if (checkInterval > 0 && parsesSinceCheck.incrementAndGet() >= checkInterval && checkLock.tryLock()) {
+            try {
+                parsesSinceCheck.set(0);
+                CacheSize size = measure();
+                if (exceedsLimits(size)) {
+                    reset(size);
+                }
+            } finally {
+                checkLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Lets a reset waiting for the write lock run in the middle of a long parse; the caller must hold
+     * the read lock, and call this where its lexer and parser hold no DFA state, such as between tokens
+     * or predictions. A reset replaces the DFAs in the shared arrays, so the parse carries on with the new ones.
+     */
+    public void yieldToReset() {
+        if (parseLock.hasQueuedThreads()) {
+            parseLock.readLock().unlock();
+            parseLock.readLock().lock();
+        }
+    }
+
+    private boolean exceedsLimits(CacheSize size) {
+        return (maxDfaStates > 0 && size.getDfaStates() > maxDfaStates)
+                || (maxEstimatedBytes > 0 && size.getEstimatedBytes() > maxEstimatedBytes);
+    }
+
+    private void reset(CacheSize size) {
+        parseLock.writeLock().lock();
+        try {
+            parser.getInterpreter().clearDFA();
+            lexer.getInterpreter().clearDFA();
+            clearContextCache(parser.getInterpreter().getSharedContextCache());
+        } finally {
+            parseLock.writeLock().unlock();
+        }
+        resets++;
+        lastReset = Instant.now();
+        sizeAtLastReset = size;
+        log.warn("Parser caches reset at {} DFA states, ~{} bytes", size.getDfaStates(), size.getEstimatedBytes());
+        eventPublisher.publishEvent(new CacheResetEvent(size));
+    }
+
+    /**
+     * PredictionContextCache has no clear(); its map is only reachable reflectively. Callers hold
+     * the write lock, so no parser is using the cache.
+     */
+    private static void clearContextCache(PredictionContextCache cache) {
+        try {
+            Field field = PredictionContextCache.class.getDeclaredField("cache");
+            field.setAccessible(true);
+            ((Map<?, ?>) field.get(cache)).clear();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Could not clear the prediction context cache", e);
+        }
+    }
+
+    /**
+     * @return The current size of the shared lexer and parser caches
+     */
+    public CacheSize measure() {
+        long[] parserSize = measure(parser.getInterpreter().decisionToDFA);
+        long[] lexerSize = measure(((LexerATNSimulator) lexer.getInterpreter()).decisionToDFA);
+        PredictionContextCache contextCache = parser.getInterpreter().getSharedContextCache();
+        long contexts;
+        synchronized (contextCache) {
+            contexts = contextCache.size();
+        }
+        long bytes = parserSize[1] + lexerSize[1] + contexts * CONTEXT_BYTES;
+        return new CacheSize(parserSize[0], lexerSize[0], contexts, bytes);
+    }
+
+    private static long[] measure(DFA[] dfas) {
+        long states = 0;
+        long bytes = 0;
+        for (DFA dfa : dfas) {
+            synchronized (dfa.states) {
+                states += dfa.states.size();
+                for (DFAState state : dfa.states.keySet()) {
+                    bytes += DFA_STATE_BYTES + state.configs.size() * CONFIG_BYTES;
+                    if (state.edges != null) {
+                        bytes += ARRAY_HEADER_BYTES + state.edges.length * REFERENCE_BYTES;
+                    }
+                }
+            }
+        }
+        return new long[] {states, bytes};
+    }
+
+    /**
+     * @return The current cache sizes, limits and reset history, keyed by name
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> stats = new LinkedHashMap<>(measure().toMap());
+        stats.put("maxDfaStates", maxDfaStates);
+        stats.put("maxEstimatedBytes", maxEstimatedBytes);
+        stats.put("resets", resets);
+        if (lastReset != null) {
+            stats.put("lastReset", lastReset.toString());
+            stats.put("sizeAtLastReset", sizeAtLastReset.toMap());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.sqlantlr.service;
+
+import com.example.sqlantlr.parser.ParseBudget;
+import com.example.sqlantlr.parser.StatementKind;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by all parser engines of a validator
+ */
+public class ParserStats {
+
+    // Statements parsed with the SLL first stage, and those that had to be re-parsed with full LL
+    private final LongAdder sllParses = new LongAdder();
+    private final LongAdder llFallbacks = new LongAdder();
+
+    // Per statement kind: statements parsed, total parse time and allocation, and routed parses that had to retry from root
+    private final Map<StatementKind, LongAdder> statements = new EnumMap<>(StatementKind.class);
+    private final Map<StatementKind, LongAdder> statementNanos = new EnumMap<>(StatementKind.class);
+    private final Map<StatementKind, LongAdder> statementBytes = new EnumMap<>(StatementKind.class);
+    private final Map<StatementKind, LongAdder> routingMisses = new EnumMap<>(StatementKind.class);
+
+    // Statements rejected by the lexer for unrecognized characters, without being parsed
+    private final LongAdder unrecognizedInput = new LongAdder();
+
+    // VALUES tuples that were only scanned and dropped from the token stream instead of parsed
+    private final LongAdder sampledRows = new LongAdder();
+
+    // Statements cancelled for running out of their parse budget, by the limit they hit
+    private final Map<ParseBudget.Limit, LongAdder> budgetExceeded = new EnumMap<>(ParseBudget.Limit.class);
+
+    public ParserStats() {
+        for (StatementKind kind : StatementKind.values()) {
+            statements.put(kind, new LongAdder());
+            statementNanos.put(kind, new LongAdder());
+            statementBytes.put(kind, new LongAdder());
+            routingMisses.put(kind, new LongAdder());
+        }
+        for (ParseBudget.Limit limit : ParseBudget.Limit.values()) {
+            budgetExceeded.put(limit, new LongAdder());
+        }
+    }
+
+    void recordSllParse() {
+        sllParses.increment();
+    }
+
+    void recordLlFallback() {
+        llFallbacks.increment();
+    }
+
+    void recordStatement(StatementKind kind, long nanos, long allocatedBytes) {
+        statements.get(kind).increment();
+        statementNanos.get(kind).add(nanos);
+        statementBytes.get(kind).add(allocatedBytes);
+    }
+
+    void recordRoutingMiss(StatementKind kind) {
+        routingMisses.get(kind).increment();
+    }
+
+    void recordUnrecognizedInput() {
+        unrecognizedInput.increment();
+    }
+
+    void recordSampledRows(int rows) {
+        sampledRows.add(rows);
+    }
+
+    void recordBudgetExceeded(ParseBudget.Limit limit) {
+        budgetExceeded.get(limit).increment();
+    }
+
+    /**
+     * @return Number of statements parsed with the SLL first stage
+     */
+    public long getSllParseCount() {
+        return sllParses.sum();
+    }
+
+    /**
+     * @return Number of statements that fell back to the full LL second stage
+     */
+    public long getLlFallbackCount() {
+        return llFallbacks.sum();
+    }
+
+    /**
+     * @return A snapshot of all counters, keyed by name
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long sll = getSllParseCount();
+        long ll = getLlFallbackCount();
+
+        stats.put("sllParses", sll);
+        stats.put("llFallbacks", ll);
+        stats.put("llFallbackRate", sll == 0 ? 0.0 : (double) ll / sll);
+
+        Map<String, Object> kinds = new LinkedHashMap<>();
+        for (StatementKind kind : StatementKind.values()) {
+            long count = statements.get(kind).sum();
+            if (count == 0) {
+                continue;
+            }
+            Map<String, Object> kindStats = new LinkedHashMap<>();
+            kindStats.put("statements", count);
+            kindStats.put("avgParseMicros", statementNanos.get(kind).sum() / 1000.0 / count);
+            kindStats.put("avgAllocatedBytes", statementBytes.get(kind).sum() / count);
+            if (kind.isRouted()) {
+                kindStats.put("routingMisses", routingMisses.get(kind).sum());
+            }
+            kinds.put(kind.name(), kindStats);
+        }
+        stats.put("statementKinds", kinds);
+        stats.put("unrecognizedInput", unrecognizedInput.sum());
+        stats.put("sampledValuesRows", sampledRows.sum());
+
+        Map<String, Object> budget = new LinkedHashMap<>();
+        for (ParseBudget.Limit limit : ParseBudget.Limit.values()) {
+            budget.put(limit.name(), budgetExceeded.get(limit).sum());
+        }
+        stats.put("budgetExceeded", budget);
+
+        return stats;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.sqlantlr.service;
+
+import com.example.sqlantlr.parser.LexerDifferential;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fills the shared lexer/parser DFA caches by validating a representative corpus at startup.
+ *
+ * Spring Boot only switches the readiness state to ACCEPTING_TRAFFIC after every ApplicationRunner
+ * has returned, so /actuator/health/readiness reports the instance as ready only once the warm-up is done.
+ */
+@Service
+public class ParserWarmupService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ParserWarmupService.class);
+
+    private final SqlValidatorService validatorService;
+    private final SqlFileParserService fileParserService;
+    private final boolean enabled;
+    private final Resource corpus;
+    private final int passes;
+
+    @Autowired
+    public ParserWarmupService(SqlValidatorService validatorService,
+                               SqlFileParserService fileParserService,
+                               @Value("${sql.validator.warmup.enabled:true}") boolean enabled,
+                               @Value("${sql.validator.warmup.corpus:classpath:warmup/corpus.sql}") Resource corpus,
+                               @Value("${sql.validator.warmup.passes:2}") int passes) {
+        this.validatorService = validatorService;
+        this.fileParserService = fileParserService;
+        this.enabled = enabled;
+        this.corpus = corpus;
+        this.passes = passes;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (validatorService.isFastLexer() && !checkFastLexer()) {
+            log.error("Falling back to the generated lexer");
+            validatorService.disableFastLexer();
+        }
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Lexes the warm-up corpus with both FastValidationLexer and the generated lexer and logs the first
+     * statement they disagree on
+     *
+     * @return Whether the lexers agree on the whole corpus
+     * @throws IOException If the corpus cannot be read
+     */
+    public boolean checkFastLexer() throws IOException {
+        List<CharSequence> queries;
+        try (InputStream input = corpus.getInputStream()) {
+            queries = fileParserService.parse(input);
+        }
+
+        long tokens = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            LexerDifferential.Report report = LexerDifferential.compare(queries.get(i));
+            tokens += report.getTokens();
+            if (!report.isMatch()) {
+                log.error("Fast lexer differs from the generated lexer on warm-up statement {}: {}", i + 1, report.getMismatch());
+                return false;
+            }
+        }
+        log.info("Fast lexer check: {} statements, {} tokens identical", queries.size(), tokens);
+        return true;
+    }
+
+    /**
+     * Rewarms the caches in the background after ParserCacheManager has cleared them
+     */
+    @EventListener
+    public void onCacheReset(ParserCacheManager.CacheResetEvent event) {
+        if (!enabled) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                warmUp();
+            } catch (IOException e) {
+                log.warn("Parser rewarm after cache reset failed", e);
+            }
+        });
+    }
+
+    /**
+     * Validates the warm-up corpus the configured number of times
+     *
+     * @return The number of statements in the corpus
+     * @throws IOException If the corpus cannot be read
+     */
+    public int warmUp() throws IOException {
+        List<CharSequence> queries;
+        try (InputStream input = corpus.getInputStream()) {
+            queries = fileParserService.parse(input);
+        }
+
+        long start = System.nanoTime();
+        int invalid = 0;
+        for (int pass = 0; pass < passes; pass++) {
+            invalid = 0;
+            for (SqlValidatorService.ValidationResult result : validatorService.validateQueries(queries)) {
+                if (!result.isValid()) {
+                    invalid++;
+                }
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        log.info("Parser warm-up: {} statements x {} passes in {} ms", queries.size(), passes, elapsedMillis);
+        if (invalid > 0) {
+            log.warn("Parser warm-up: {} corpus statements did not validate", invalid);
+        }
+        return queries.size();
+    }
+}
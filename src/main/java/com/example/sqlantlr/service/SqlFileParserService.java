@@ -1,29 +1,70 @@
 package com.example.sqlantlr.service;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 @Service
 public class SqlFileParserService {
 
-    // Pattern for DELIMITER statement
-    private static final Pattern DELIMITER_PATTERN = Pattern.compile("^DELIMITER\\s+([^\\s]+)\\s*$", Pattern.CASE_INSENSITIVE);
+    // Buffer for inflating compressed scripts, well above GZIPInputStream's default of 512 bytes
+    private static final int INFLATE_BUFFER_SIZE = 1 << 16;
 
-    // Patterns for detecting CREATE PROCEDURE, FUNCTION, TRIGGER, or EVENT statements
-    private static final Pattern CREATE_BLOCK_PATTERN = Pattern.compile("^\\s*CREATE\\s+(PROCEDURE|FUNCTION|TRIGGER|EVENT)\\s+", Pattern.CASE_INSENSITIVE);
+    // Chunks per thread when splitting in parallel, so a chunk that needs fixing up does not hold back the rest
+    private static final int CHUNKS_PER_THREAD = 4;
 
-    // Pattern for BEGIN keyword
-    private static final Pattern BEGIN_PATTERN = Pattern.compile("\\bBEGIN\\b", Pattern.CASE_INSENSITIVE);
+    // Scripts of at least this many characters are split on several threads; 0 never splits in parallel
+    private final int parallelSplitThreshold;
 
-    // Pattern for END keyword followed by optional identifier and delimiter
-    private static final Pattern END_PATTERN = Pattern.compile("\\bEND\\b(\\s+[A-Za-z0-9_]+)?", Pattern.CASE_INSENSITIVE);
+    // Most bytes a compressed upload may inflate to, in total over a zip archive's scripts
+    private final long maxInflatedBytes;
+
+    // Dedicated pool for splitting large scripts, sized as the validation pool is rather than sharing the common pool
+    private final ForkJoinPool splitPool;
+
+    /**
+     * Creates a parser that splits large scripts in parallel
+     */
+    public SqlFileParserService() {
+        this(1 << 22, 256L << 20, 0);
+    }
+
+    @Autowired
+    public SqlFileParserService(@Value("${sql.validator.parallel-split-threshold:4194304}") int parallelSplitThreshold,
+                                @Value("${sql.validator.max-inflated-bytes:268435456}") long maxInflatedBytes,
+                                @Value("${sql.validator.parallelism:0}") int parallelism) {
+        this.parallelSplitThreshold = parallelSplitThreshold;
+        this.maxInflatedBytes = maxInflatedBytes;
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.splitPool = new ForkJoinPool(threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        splitPool.shutdownNow();
+    }
 
     /**
      * Parse a SQL file into individual SQL queries, handling custom delimiters
@@ -33,104 +74,227 @@ public class SqlFileParserService {
      * @return A list of SQL queries
      * @throws IOException If the file cannot be read
      */
-    public List<String> parseFile(MultipartFile file) throws IOException {
-        List<String> queries = new ArrayList<>();
-        StringBuilder currentQuery = new StringBuilder();
-        String currentDelimiter = ";";
-        boolean inBlockDefinition = false;
-        int beginBlockCount = 0;
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Skip empty lines
-                String trimmedLine = line.trim();
-                if (trimmedLine.isEmpty()) {
-                    // Still add the newline to preserve formatting
-                    if (currentQuery.length() > 0) {
-                        currentQuery.append("\n");
-                    }
-                    continue;
-                }
+    public List<CharSequence> parseFile(MultipartFile file) throws IOException {
+        return parse(file.getInputStream());
+    }
 
-                // Check for comments
-                if (trimmedLine.startsWith("--") || trimmedLine.startsWith("#")) {
-                    // Add comment to current query to preserve them
-                    currentQuery.append(line).append("\n");
-                    continue;
-                }
+    /**
+     * Parse a SQL script into individual SQL queries
+     *
+     * @param input The SQL script, in UTF-8, plain or gzip-compressed; closed once it has been read
+     * @return A list of SQL queries
+     * @throws IOException If the script cannot be read, or is a zip archive
+     */
+    public List<CharSequence> parse(InputStream input) throws IOException {
+        try (input; InputStream script = decompress(input)) {
+            return split(new String(script.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
 
-                // Check for multi-line comments
-                if (trimmedLine.startsWith("/*") && !trimmedLine.contains("*/")) {
-                    currentQuery.append(line).append("\n");
+    /**
+     * How a script upload is compressed, as told by its first bytes rather than by its name
+     */
+    public enum Compression {
+        NONE,
+        GZIP,
+        // A zip archive, holding any number of scripts
+        ZIP
+    }
+
+    /**
+     * @param input The upload; read from and reset, so it must support mark, as BufferedInputStream does
+     * @return How it is compressed
+     * @throws IOException If it cannot be read
+     */
+    public static Compression detectCompression(InputStream input) throws IOException {
+        input.mark(4);
+        byte[] magic = input.readNBytes(4);
+        input.reset();
+        if (magic.length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+            return Compression.GZIP;
+        }
+        // A local file header, or the end of an empty archive
+        if (magic.length == 4 && magic[0] == 'P' && magic[1] == 'K'
+                && ((magic[2] == 3 && magic[3] == 4) || (magic[2] == 5 && magic[3] == 6))) {
+            return Compression.ZIP;
+        }
+        return Compression.NONE;
+    }
+
+    /**
+     * Read a script that may be gzip-compressed, inflating it as it is read
+     *
+     * @param input The script, plain or gzip-compressed
+     * @return The script's own bytes; reading more than sql.validator.max-inflated-bytes of them from
+     * a compressed script throws IOException
+     * @throws IOException If the input cannot be read, or is a zip archive, which may hold several
+     * scripts; see {@link #readArchive(InputStream)}
+     */
+    public InputStream decompress(InputStream input) throws IOException {
+        return decompress(input, new InflateLimit(maxInflatedBytes), false);
+    }
+
+    /**
+     * @param limit What the script may inflate to, or null to inflate it without limit
+     * @param inflated Whether the input is itself inflated, as a zip entry is, so that even plain text counts against the limit
+     */
+    private static InputStream decompress(InputStream input, InflateLimit limit, boolean inflated) throws IOException {
+        InputStream buffered = input.markSupported() ? input : new BufferedInputStream(input, INFLATE_BUFFER_SIZE);
+        return switch (detectCompression(buffered)) {
+            case NONE -> inflated ? new LimitedInputStream(buffered, limit) : buffered;
+            case GZIP -> {
+                InputStream inflater = new GZIPInputStream(buffered, INFLATE_BUFFER_SIZE);
+                yield limit == null ? inflater : new LimitedInputStream(inflater, limit);
+            }
+            case ZIP -> throw new IOException("A zip archive holds several scripts and must be read as an archive");
+        };
+    }
+
+    /**
+     * Read the SQL scripts in a zip archive, such as a bundle of migrations: every entry named .sql,
+     * or .sql.gz, which is inflated as well. Entries are inflated as they are read; macOS resource
+     * fork entries are skipped.
+     *
+     * @param input The archive; closed once it has been read
+     * @return Each script's text by entry name, in archive order
+     * @throws IOException If the archive cannot be read, or its scripts inflate to more than
+     * sql.validator.max-inflated-bytes, one of them alone or all together
+     */
+    public Map<String, String> readArchive(InputStream input) throws IOException {
+        Map<String, String> scripts = new LinkedHashMap<>();
+        InflateLimit limit = new InflateLimit(maxInflatedBytes);
+        try (ZipInputStream archive = new ZipInputStream(new BufferedInputStream(input, INFLATE_BUFFER_SIZE),
+                StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = archive.getNextEntry()) != null) {
+                String name = entry.getName();
+                String lowerName = name.toLowerCase(Locale.ROOT);
+                if (entry.isDirectory() || name.startsWith("__MACOSX/")
+                        || !(lowerName.endsWith(".sql") || lowerName.endsWith(".sql.gz"))) {
                     continue;
                 }
+                // Only this entry is read; closing the inflater over it would close the archive
+                InputStream script = decompress(new BufferedInputStream(archive, INFLATE_BUFFER_SIZE), limit, true);
+                scripts.put(name, new String(script.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return scripts;
+    }
 
-                // Check for DELIMITER statements
-                Matcher delimiterMatcher = DELIMITER_PATTERN.matcher(trimmedLine);
-                if (delimiterMatcher.matches()) {
-                    // If we have a partial query, add it
-                    if (currentQuery.length() > 0 && !inBlockDefinition) {
-                        queries.add(currentQuery.toString().trim());
-                        currentQuery = new StringBuilder();
+    /**
+     * Read the statements of a SQL script one at a time as the script is read, holding no more of it
+     * in memory than the statement being read; for scripts too large for {@link #parse(InputStream)}.
+     * The statements are split as {@link #scan(CharSequence)} splits them. As the script is never held
+     * whole, a compressed one is not held to sql.validator.max-inflated-bytes, just as a plain one is not.
+     *
+     * @param input The SQL script, in UTF-8, plain or gzip-compressed; closed when the stream is closed
+     * @return The statements, in script order; reading them throws UncheckedIOException if the script cannot be read
+     * @throws IOException If the start of the script cannot be read, or it is a zip archive
+     */
+    public Stream<StatementIterator.Statement> stream(InputStream input) throws IOException {
+        InputStream script;
+        try {
+            script = decompress(input, null, false);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+        StatementIterator statements = new StatementIterator(new InputStreamReader(script, StandardCharsets.UTF_8));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(statements,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        statements.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
+                });
+    }
 
-                    // Add the DELIMITER statement as a separate query if not in a block
-                    if (!inBlockDefinition) {
-                        queries.add(trimmedLine);
-                    } else {
-                        currentQuery.append(line).append("\n");
-                    }
+    /**
+     * Split a SQL script into individual SQL queries. The queries are views of the script
+     * rather than copies of their text; a statement ended by a delimiter set with DELIMITER is
+     * viewed with a ';' in place of the delimiter, see {@link TerminatedText}.
+     *
+     * @param script The SQL script
+     * @return A list of SQL queries
+     */
+    public List<CharSequence> split(CharSequence script) {
+        StatementSpans spans = scan(script);
+        List<CharSequence> queries = new ArrayList<>(spans.size());
+        for (int i = 0; i < spans.size(); i++) {
+            TextSlice query = spans.getText(script, i);
+            if (spans.isTerminated(i) && query.charAt(query.length() - 1) != ';') {
+                queries.add(new TerminatedText(query));
+            } else {
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
 
-                    // Update the current delimiter
-                    currentDelimiter = delimiterMatcher.group(1);
-                    continue;
-                }
+    /**
+     * Split a SQL script into statements in a single pass over its characters, applying DELIMITER
+     * commands and keeping compound statements whole; see {@link StatementScanner}. A large script is
+     * split on a pool of sql.validator.parallelism threads; see {@link ParallelStatementScanner}
+     *
+     * @param script The SQL script
+     * @return The statements, as ranges of the script
+     */
+    public StatementSpans scan(CharSequence script) {
+        if (parallelSplitThreshold <= 0 || script.length() < parallelSplitThreshold || splitPool.getParallelism() < 2) {
+            return StatementScanner.scan(script);
+        }
+        return ParallelStatementScanner.scan(script, splitPool, splitPool.getParallelism() * CHUNKS_PER_THREAD);
+    }
 
-                // Add the line to the current query
-                currentQuery.append(line).append("\n");
+    /**
+     * What is left of the bytes an upload may inflate to, shared by the streams reading it
+     */
+    private static final class InflateLimit {
+        final long max;
+        long remaining;
 
-                // Check if this is the start of a block definition (CREATE PROCEDURE, etc.)
-                if (!inBlockDefinition && CREATE_BLOCK_PATTERN.matcher(trimmedLine).find()) {
-                    inBlockDefinition = true;
-                }
+        InflateLimit(long max) {
+            this.max = max;
+            this.remaining = max;
+        }
+    }
 
-                // Count BEGIN keywords
-                if (inBlockDefinition) {
-                    Matcher beginMatcher = BEGIN_PATTERN.matcher(trimmedLine);
-                    while (beginMatcher.find()) {
-                        beginBlockCount++;
-                    }
+    /**
+     * Counts the bytes read against a limit, failing once they go over it
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final InflateLimit limit;
 
-                    // Count END keywords
-                    Matcher endMatcher = END_PATTERN.matcher(trimmedLine);
-                    while (endMatcher.find()) {
-                        beginBlockCount--;
-
-                        // If we've reached the matching END for all BEGINs and the line ends with delimiter
-                        if (beginBlockCount == 0 && trimmedLine.endsWith(currentDelimiter)) {
-                            inBlockDefinition = false;
-                            queries.add(currentQuery.toString().trim());
-                            currentQuery = new StringBuilder();
-                            break;
-                        }
-                    }
-                }
+        LimitedInputStream(InputStream in, InflateLimit limit) {
+            super(in);
+            this.limit = limit;
+        }
 
-                // For non-block statements, check if the line ends with the current delimiter
-                if (!inBlockDefinition && trimmedLine.endsWith(currentDelimiter) && beginBlockCount == 0) {
-                    // Add the complete query
-                    queries.add(currentQuery.toString().trim());
-                    currentQuery = new StringBuilder();
-                }
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
             }
+            return b;
+        }
 
-            // Add the last query if it doesn't end with a delimiter
-            if (currentQuery.length() > 0) {
-                queries.add(currentQuery.toString().trim());
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
             }
+            return read;
         }
 
-        return queries;
+        private void count(int bytes) throws IOException {
+            limit.remaining -= bytes;
+            if (limit.remaining < 0) {
+                throw new IOException("Decompressed size exceeds the limit of " + limit.max + " bytes");
+            }
+        }
     }
-}
\ No newline at end of file
+}
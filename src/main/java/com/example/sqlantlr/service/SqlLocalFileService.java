@@ -0,0 +1,95 @@
+package com.example.sqlantlr.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validates SQL files already on the server's disk, by path, reading them through a memory
+ * mapping instead of an upload. Only files under the configured base directories can be read.
+ */
+@Service
+public class SqlLocalFileService {
+
+    private final SqlFileParserService fileParserService;
+    private final SqlValidatorService validatorService;
+
+    private static final Logger log = LoggerFactory.getLogger(SqlLocalFileService.class);
+
+    // Real paths of the directories files may be read from; none disables reading by path
+    private final List<Path> baseDirectories = new ArrayList<>();
+    // The same directories as configured, made absolute and normalized, and their real paths
+    private final List<Path> allowedPrefixes = new ArrayList<>();
+
+    /**
+     * @param baseDirectories Comma-separated directories files may be read from; those that cannot be
+     * resolved, such as ones that do not exist, are skipped with a warning
+     */
+    @Autowired
+    public SqlLocalFileService(SqlFileParserService fileParserService, SqlValidatorService validatorService,
+                               @Value("${sql.validator.local-files.base-dirs:}") String baseDirectories) {
+        this.fileParserService = fileParserService;
+        this.validatorService = validatorService;
+        for (String directory : baseDirectories.split(",")) {
+            if (directory.isBlank()) {
+                continue;
+            }
+            try {
+                Path configured = Path.of(directory.trim());
+                Path real = configured.toRealPath();
+                this.baseDirectories.add(real);
+                this.allowedPrefixes.add(configured.toAbsolutePath().normalize());
+                this.allowedPrefixes.add(real);
+            } catch (IOException | InvalidPathException e) {
+                log.warn("Skipping base directory {} for validating files by path: {}", directory.trim(), e.toString());
+            }
+        }
+    }
+
+    /**
+     * Validates a file's statements, split as {@link SqlFileParserService#scan(CharSequence)} splits them
+     *
+     * @param path The file, in UTF-8
+     * @return The results, in file order
+     * @throws AccessDeniedException If the file is not under a base directory
+     * @throws IOException If the file cannot be read
+     */
+    public List<SqlValidatorService.ValidationResult> validate(Path path) throws IOException {
+        CharSequence script = open(path);
+        return validatorService.validateSpans(script, fileParserService.scan(script));
+    }
+
+    /**
+     * Maps a file for reading; the text is read in place, so splitting and lexing it copies none of it
+     *
+     * @param path The file, in UTF-8
+     * @return The file's text; see {@link MappedText}
+     * @throws AccessDeniedException If the file is not under a base directory
+     * @throws IOException If the file cannot be read
+     */
+    public CharSequence open(Path path) throws IOException {
+        if (baseDirectories.isEmpty()) {
+            throw new AccessDeniedException(path.toString(), null, "validating files by path is not enabled");
+        }
+        // Checked before the file system is touched, so a path outside the base directories gets the same
+        // answer whether or not it exists
+        if (allowedPrefixes.stream().noneMatch(path.toAbsolutePath().normalize()::startsWith)) {
+            throw new AccessDeniedException(path.toString(), null, "not under a directory files may be validated from");
+        }
+        // With symbolic links resolved, so none leads out of a base directory
+        Path file = path.toRealPath();
+        if (baseDirectories.stream().noneMatch(file::startsWith)) {
+            throw new AccessDeniedException(path.toString(), null, "not under a directory files may be validated from");
+        }
+        return MappedText.map(file);
+    }
+}
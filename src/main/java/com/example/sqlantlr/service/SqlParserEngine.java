@@ -0,0 +1,693 @@
+package com.example.sqlantlr.service;
+
+import com.example.sqlantlr.parser.BudgetedParserATNSimulator;
+import com.example.sqlantlr.parser.BudgetedReader;
+import com.example.sqlantlr.parser.BudgetedTokenStream;
+import com.example.sqlantlr.parser.CharSequenceCharStream;
+import com.example.sqlantlr.parser.CompactTokenStream;
+import com.example.sqlantlr.parser.DelimiterTokenSource;
+import com.example.sqlantlr.parser.FastValidationLexer;
+import com.example.sqlantlr.parser.FullContextCachingATNSimulator;
+import com.example.sqlantlr.parser.ParseBudget;
+import com.example.sqlantlr.parser.ParseBudgetExceededException;
+import com.example.sqlantlr.parser.StatementKind;
+import com.example.sqlantlr.parser.StatementSplitter;
+import com.example.sqlantlr.parser.StreamingTokenStream;
+import com.example.sqlantlr.parser.ValidationLexer;
+import com.example.sqlantlr.parser.ValuesSampling;
+import com.sql.validator.MariaDBLexer;
+import com.sql.validator.MariaDBParser;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.atn.Transition;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A lexer, token stream and parser that are reused across statements instead of
+ * being rebuilt for each one. An engine is not thread-safe; callers must confine
+ * each instance to a single thread.
+ */
+public class SqlParserEngine {
+
+    private static final CharStream EMPTY_INPUT = new CharSequenceCharStream("");
+
+    // ATN state in sqlStatements that invokes sqlStatement; parsing a script statement from here
+    // lets prediction and error recovery see the ';' that must follow it
+    private static final int STATEMENT_INVOKING_STATE = findInvokingState(MariaDBParser._ATN,
+            MariaDBParser.RULE_sqlStatements, MariaDBParser.RULE_sqlStatement);
+
+    // Per-thread allocation counter of HotSpot-based JVMs, or null where it is unavailable
+    private static final com.sun.management.ThreadMXBean ALLOCATION_COUNTER = allocationCounter();
+
+    // Unrecognized characters reported per statement; the rest are only counted
+    private static final int MAX_REPORTED_UNRECOGNIZED = 10;
+
+    // Syntax errors reported per streamed text, whose error count is otherwise unbounded
+    private static final int MAX_REPORTED_STREAM_ERRORS = 100;
+
+    // Characters UnbufferedCharStream starts with; it only grows past this for a token that is longer
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    // Tokens lexed, and predictions made in a streamed parse, between chances for a waiting cache reset to run
+    private static final int TOKENS_PER_YIELD = 1 << 16;
+    private static final int PREDICTIONS_PER_YIELD_MASK = 0x3FF;
+
+    private final ParserStats stats;
+    private final ParserCacheManager cacheManager;
+    private final boolean routing;
+    private final ParseBudget.Meter meter;
+    private final ValuesSampling sampling;
+    private final ValidationLexer lexer;
+    private final DelimiterTokenSource delimiters;
+    private final BudgetedTokenStream tokens;
+    private final MariaDBParser parser;
+    private final FullContextCachingATNSimulator streamInterpreter;
+    private final SyntaxErrorListener errorListener = new SyntaxErrorListener();
+    private final SyntaxErrorListener streamErrorListener = new SyntaxErrorListener(MAX_REPORTED_STREAM_ERRORS);
+    private final BailErrorStrategy bailStrategy = new BailErrorStrategy();
+    private final DefaultErrorStrategy defaultStrategy = new DefaultErrorStrategy();
+
+    /**
+     * @param routing Whether the SLL stage parses recognized statement kinds with their own entry rule instead of root
+     * @param buildParseTree Whether the parser links rule contexts into a parse tree; validation never reads it
+     * @param fastLexer Whether to lex with the hand-written FastValidationLexer instead of the generated lexer alone
+     * @param budget The limits each statement is parsed under
+     * @param sampling Which VALUES tuples of long INSERT/REPLACE statements are only scanned instead of parsed
+     */
+    public SqlParserEngine(ParserStats stats, ParserCacheManager cacheManager, boolean routing, boolean buildParseTree,
+                           boolean fastLexer, ParseBudget budget, ValuesSampling sampling) {
+        this.stats = stats;
+        this.cacheManager = cacheManager;
+        this.routing = routing;
+        this.meter = budget.newMeter();
+        this.sampling = sampling;
+        this.lexer = fastLexer ? new FastValidationLexer(EMPTY_INPUT) : new ValidationLexer(EMPTY_INPUT);
+        lexer.setTokenFactory(CompactTokenStream.flyweightFactory());
+        this.delimiters = new DelimiterTokenSource(lexer);
+        this.tokens = new BudgetedTokenStream(lexer, meter);
+        this.parser = new MariaDBParser(tokens);
+        parser.setInterpreter(new BudgetedParserATNSimulator(parser, meter));
+        this.streamInterpreter = new FullContextCachingATNSimulator(parser, meter) {
+            private int predictions;
+
+            @Override
+            public int adaptivePredict(TokenStream input, int decision, ParserRuleContext outerContext) {
+                // No DFA state is held between predictions, so a reset need not wait for a long streamed statement
+                if ((++predictions & PREDICTIONS_PER_YIELD_MASK) == 0) {
+                    cacheManager.yieldToReset();
+                }
+                return super.adaptivePredict(input, decision, outerContext);
+            }
+        };
+        parser.setBuildParseTree(buildParseTree);
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+    }
+
+    /**
+     * Parses a single statement
+     * @param query The SQL statement
+     * @return The syntax error messages, or null if the statement is valid
+     * @throws ParseBudgetExceededException If the statement used up its parse budget
+     */
+    public String parse(CharSequence query) {
+        // Holds off a cache reset until this parse is done
+        cacheManager.beforeParse();
+        long startNanos = System.nanoTime();
+        long startBytes = allocatedBytes();
+        StatementKind kind = StatementKind.OTHER;
+        try {
+            // Started before lexing, so the token and time limits also cover lexing and sampling
+            meter.start();
+            lexer.setInputStream(charStream(query));
+            tokens.setTokenSource(lexer);
+            // Lexed up front, so a statement with characters the lexer does not recognize is rejected unparsed
+            tokens.fill();
+            int sampledRows = sampleValues();
+            // Classified even when routing is off, so the per-kind timings can be compared
+            kind = StatementKind.classify(tokens);
+            String lexerErrors = unrecognizedInput(0, Integer.MAX_VALUE);
+            if (lexerErrors != null) {
+                stats.recordUnrecognizedInput();
+                return lexerErrors;
+            }
+
+            // First stage: fast SLL prediction, bailing out on the first error
+            parser.setErrorHandler(bailStrategy);
+            parser.setTokenStream(tokens);
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            stats.recordSllParse();
+            if (routing && kind.isRouted()) {
+                if (parseRouted(kind) && atEndOfInput()) {
+                    return null;
+                }
+                stats.recordRoutingMiss(kind);
+                parser.reset();
+            }
+            try {
+                parser.root();
+                return null;
+            } catch (ParseCancellationException e) {
+                // Either a real syntax error or an SLL conflict; only full LL can tell
+                stats.recordLlFallback();
+            }
+
+            // Second stage: rewind and re-parse with full LL and error reporting
+            errorListener.clear();
+            parser.setErrorHandler(defaultStrategy);
+            parser.reset();
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.root();
+            if (errorListener.hasErrors() && sampledRows > 0) {
+                // Error recovery may have read on into the dropped tuples, so errors come from the whole statement
+                lexer.setInputStream(charStream(query));
+                tokens.setTokenSource(lexer);
+                errorListener.clear();
+                parser.reset();
+                parser.root();
+            }
+
+            return errorListener.hasErrors() ? errorListener.getErrorMessages() : null;
+        } catch (ParseBudgetExceededException e) {
+            stats.recordBudgetExceeded(e.getLimit());
+            throw e;
+        } finally {
+            meter.stop();
+            stats.recordStatement(kind, System.nanoTime() - startNanos, allocatedBytes() - startBytes);
+            release();
+            cacheManager.afterParse();
+        }
+    }
+
+    /**
+     * Parses a single statement like {@link #parse(CharSequence)}, but with ANTLR's ProfilingATNSimulator in
+     * place of the budgeted one; the token and time limits still apply, the prediction step limit does not
+     * @param query The SQL statement
+     * @param profile Receives the per-decision profile once the parse has completed
+     * @return The syntax error messages, or null if the statement is valid
+     */
+    public String parseProfiled(CharSequence query, Consumer<DecisionInfo[]> profile) {
+        ParserATNSimulator interpreter = parser.getInterpreter();
+        parser.setProfile(true);
+        try {
+            String errors = parse(query);
+            profile.accept(parser.getParseInfo().getDecisionInfo());
+            return errors;
+        } finally {
+            parser.setInterpreter(interpreter);
+        }
+    }
+
+    /**
+     * Parses text read from a stream, holding only a bounded window of characters and tokens in
+     * memory however long the text is, for statements too large to be read into a String.
+     *
+     * Without the whole token stream there is no rewinding, so the text is parsed once with full LL
+     * prediction and error reporting instead of SLL first, with full-context predictions cached by
+     * FullContextCachingATNSimulator; entry rule routing and the token limit do not apply. The time
+     * and prediction step limits apply to each statement, checked whenever more text is read, and
+     * grow with the text read, so a long statement streamed at a steady rate is not cut short. Each
+     * statement is parsed as in {@link #parseScript(CharSequence)}, so the first error is reported
+     * at the same line:col as by {@link #parse(CharSequence)}, in the form script mode reports it,
+     * and at most {@link #MAX_REPORTED_STREAM_ERRORS} errors are reported.
+     * @param reader The SQL text
+     * @return The syntax error messages, or null if the text is valid
+     * @throws IOException If the text could not be read
+     * @throws ParseBudgetExceededException If a statement used up its parse budget
+     */
+    public String parseStream(Reader reader) throws IOException {
+        cacheManager.beforeParse();
+        long startNanos = System.nanoTime();
+        long startBytes = allocatedBytes();
+        StatementKind kind = StatementKind.OTHER;
+        boolean buildParseTree = parser.getBuildParseTree();
+        ParserATNSimulator interpreter = parser.getInterpreter();
+        try {
+            meter.start();
+            lexer.setInputStream(new UnbufferedCharStream(new BudgetedReader(reader, meter, STREAM_BUFFER_SIZE),
+                    STREAM_BUFFER_SIZE));
+            lexer.setMaxRecordedUnrecognized(MAX_REPORTED_UNRECOGNIZED);
+            StreamingTokenStream stream = new StreamingTokenStream(lexer);
+            kind = StatementKind.classify(stream);
+
+            parser.setBuildParseTree(false);
+            parser.setErrorHandler(defaultStrategy);
+            parser.setInterpreter(streamInterpreter);
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.removeErrorListeners();
+            parser.addErrorListener(streamErrorListener);
+            // One sqlStatement at a time, as in parseScript: root's statement loop decision looks
+            // ahead to the end of the statement, which would buffer all of its tokens
+            while (true) {
+                while (stream.LA(1) == MariaDBLexer.SEMI) {
+                    stream.consume();
+                }
+                if (stream.LA(1) == Token.EOF || endsScript(stream, 1)) {
+                    break;
+                }
+                // Between statements, as well as every so many predictions in the stream interpreter
+                cacheManager.yieldToReset();
+                meter.start();
+                parser.setTokenStream(stream);
+                parser.enterRule(new MariaDBParser.SqlStatementsContext(null, -1), STATEMENT_INVOKING_STATE,
+                        MariaDBParser.RULE_sqlStatements);
+                int errorCount = streamErrorListener.getErrorCount();
+                parser.sqlStatement();
+                if (streamErrorListener.getErrorCount() == errorCount && !atStatementEnd(stream)
+                        && stream.LA(1) != Token.EOF) {
+                    Token next = stream.LT(1);
+                    streamErrorListener.syntaxError(parser, next, next.getLine(), next.getCharPositionInLine(),
+                            "missing ';' at '" + next.getText() + "'", null);
+                }
+                while (stream.LA(1) != Token.EOF && !atStatementEnd(stream)) {
+                    stream.consume();
+                }
+                if (stream.LA(1) == MariaDBLexer.MINUS) {
+                    stream.consume();
+                    stream.consume();
+                }
+                if (stream.LA(1) == MariaDBLexer.SEMI) {
+                    stream.consume();
+                }
+            }
+
+            // As in parse(), unrecognized characters are reported instead of the errors they caused
+            if (lexer.getUnrecognizedCount() > 0) {
+                stats.recordUnrecognizedInput();
+                return formatUnrecognized(lexer.getUnrecognizedInput(0, Integer.MAX_VALUE), lexer.getUnrecognizedCount());
+            }
+            return streamErrorListener.hasErrors() ? streamErrorListener.getErrorMessages() : null;
+        } catch (ParseBudgetExceededException e) {
+            stats.recordBudgetExceeded(e.getLimit());
+            throw e;
+        } catch (RuntimeException e) {
+            // UnbufferedCharStream rethrows read failures unchecked
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            meter.stop();
+            stats.recordStatement(kind, System.nanoTime() - startNanos, allocatedBytes() - startBytes);
+            streamErrorListener.clear();
+            parser.removeErrorListeners();
+            parser.addErrorListener(errorListener);
+            parser.setBuildParseTree(buildParseTree);
+            parser.setInterpreter(interpreter);
+            lexer.setMaxRecordedUnrecognized(Integer.MAX_VALUE);
+            lexer.setTokenFactory(CompactTokenStream.flyweightFactory());
+            release();
+            cacheManager.afterParse();
+        }
+    }
+
+    /**
+     * Parses the statement at the current position with the entry rule of its kind, in SLL mode with the bail strategy
+     * @return Whether the entry rule matched; the stream is left after the last matched token
+     */
+    private boolean parseRouted(StatementKind kind) {
+        try {
+            kind.parse(parser);
+            return true;
+        } catch (ParseCancellationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Consumes what root allows after a statement: ((MINUS MINUS)? SEMI)+ (MINUS MINUS)? EOF
+     * @return Whether the input ended that way
+     */
+    private boolean atEndOfInput() {
+        if (!atStatementEnd()) {
+            return false;
+        }
+        while (atStatementEnd()) {
+            if (tokens.LA(1) == MariaDBLexer.MINUS) {
+                tokens.consume();
+                tokens.consume();
+            }
+            tokens.consume();
+        }
+        return tokens.LA(1) == Token.EOF || endsScript(1);
+    }
+
+    /**
+     * A statement found while parsing a whole script
+     */
+    public static class ScriptStatement {
+        private final CharSequence text;
+        private final int line;
+        private final String errors;
+        private final boolean budgetExceeded;
+
+        public ScriptStatement(CharSequence text, int line, String errors, boolean budgetExceeded) {
+            this.text = text;
+            this.line = line;
+            this.errors = errors;
+            this.budgetExceeded = budgetExceeded;
+        }
+
+        public CharSequence getText() {
+            return text;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getErrors() {
+            return errors;
+        }
+
+        public boolean isBudgetExceeded() {
+            return budgetExceeded;
+        }
+    }
+
+    /**
+     * Lexes a whole script once, cuts it into statements with {@link StatementSplitter} and parses each
+     * statement's tokens as they are. DELIMITER commands are applied as the mysql client applies them.
+     * Each statement gets the same SLL-then-LL treatment as {@link #parse(CharSequence)}, and errors are
+     * reported against the statement they occur in, with line numbers relative to the script. After an
+     * invalid statement, parsing resumes at the next statement the splitter found, whatever error
+     * recovery did; after a valid one that the parser found to end before the splitter's end, it resumes
+     * right after it, so the rest of the splitter's statement is parsed too. A statement that uses up
+     * its parse budget is reported as such.
+     * @param script The SQL script
+     * @return The statements in script order
+     */
+    public List<ScriptStatement> parseScript(CharSequence script) {
+        cacheManager.beforeParse();
+        try {
+            return parseStatements(script, true);
+        } finally {
+            release();
+            cacheManager.afterParse();
+        }
+    }
+
+    /**
+     * @param sample Whether VALUES sampling applies; a script with syntax errors is parsed again without it,
+     * so that its errors are those of the whole script
+     */
+    private List<ScriptStatement> parseStatements(CharSequence script, boolean sample) {
+        lexer.setInputStream(charStream(script));
+        delimiters.reset();
+        tokens.setTokenSource(delimiters);
+        // The script is lexed once for all its statements, so each statement's budget is only metered from parsing on
+        fillYielding();
+        boolean sampled = sample && sampleValues() > 0;
+        int[] ends = StatementSplitter.split(tokens, delimiters);
+        parser.setTokenStream(tokens);
+
+        List<ScriptStatement> statements = new ArrayList<>();
+        // Start of the text since the previous statement, where unrecognized characters are looked for
+        int regionStart = 0;
+        int index = 0;
+        int s = 0;
+        while (s < ends.length) {
+            int end = ends[s];
+            // Used up, by statements the parser found to end at or past its end
+            if (end <= index) {
+                s++;
+                continue;
+            }
+            tokens.seek(index);
+            // Empty statements
+            while (tokens.LA(1) == MariaDBLexer.SEMI && tokens.index() < end - 1) {
+                tokens.consume();
+            }
+            if (tokens.LA(1) == MariaDBLexer.SEMI || tokens.LA(1) == Token.EOF || endsScript(1)) {
+                index = end;
+                continue;
+            }
+
+            Token start = tokens.LT(1);
+            Token last = tokens.get(end - 1);
+            String errors = unrecognizedInput(regionStart, last.getStopIndex());
+            boolean budgetExceeded = false;
+            if (errors != null) {
+                stats.recordUnrecognizedInput();
+            } else {
+                try {
+                    errors = parseStatement(start.getTokenIndex());
+                } catch (ParseBudgetExceededException e) {
+                    errors = e.getMessage();
+                    budgetExceeded = true;
+                }
+                if (errors == null && !atStatementEnd()) {
+                    Token next = tokens.LT(1);
+                    errors = next.getType() == Token.EOF
+                            ? "Missing semicolon at the end of the query"
+                            : String.format("line %d:%d missing ';' at '%s'", next.getLine(), next.getCharPositionInLine(), next.getText());
+                } else if (errors == null) {
+                    // A valid statement ending at another ';' than the splitter's is taken as the parser found it
+                    int semicolon = tokens.LA(1) == MariaDBLexer.SEMI ? tokens.index() : tokens.index() + 2;
+                    end = semicolon + 1;
+                    last = tokens.get(semicolon);
+                }
+            }
+            index = end;
+            regionStart = last.getStopIndex() + 1;
+
+            if (errors != null && sampled) {
+                return parseStatements(script, false);
+            }
+            TextSlice text = new TextSlice(script, start.getStartIndex(), last.getStopIndex() + 1 - start.getStartIndex());
+            statements.add(new ScriptStatement(text, start.getLine(), errors, budgetExceeded));
+            nextParse();
+        }
+
+        // Unrecognized characters after the last statement are reported on their own
+        List<ValidationLexer.UnrecognizedChar> trailing = lexer.getUnrecognizedInput(regionStart, Integer.MAX_VALUE);
+        if (!trailing.isEmpty()) {
+            stats.recordUnrecognizedInput();
+            statements.add(new ScriptStatement(TextSlice.trimmed(script, regionStart, script.length()),
+                    trailing.get(0).getLine(), unrecognizedInput(regionStart, Integer.MAX_VALUE), false));
+        }
+        return statements;
+    }
+
+    /**
+     * Parses one sqlStatement starting at the given token, leaving the stream after its last token
+     * @return The syntax error messages, or null if the statement is valid
+     */
+    private String parseStatement(int startIndex) {
+        long startNanos = System.nanoTime();
+        long startBytes = allocatedBytes();
+        StatementKind kind = StatementKind.classify(tokens);
+        meter.start();
+        try {
+            return parseStatement(startIndex, kind);
+        } catch (ParseBudgetExceededException e) {
+            stats.recordBudgetExceeded(e.getLimit());
+            throw e;
+        } finally {
+            meter.stop();
+            stats.recordStatement(kind, System.nanoTime() - startNanos, allocatedBytes() - startBytes);
+        }
+    }
+
+    private String parseStatement(int startIndex, StatementKind kind) {
+        // First stage: fast SLL prediction, bailing out on the first error
+        parser.setErrorHandler(bailStrategy);
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        stats.recordSllParse();
+        if (routing && kind.isRouted()) {
+            parser.reset();
+            tokens.seek(startIndex);
+            if (parseRouted(kind) && atStatementEnd()) {
+                return null;
+            }
+            stats.recordRoutingMiss(kind);
+        }
+        rewind(startIndex);
+        try {
+            parser.sqlStatement();
+            // Without the ';' that follows in root, SLL may have stopped short of the statement end
+            if (atStatementEnd() || tokens.LA(1) == Token.EOF) {
+                return null;
+            }
+        } catch (ParseCancellationException e) {
+            // Either a real syntax error or an SLL conflict; only full LL can tell
+        }
+        stats.recordLlFallback();
+
+        // Second stage: full LL with error reporting, recovering no further than the next ';'
+        errorListener.clear();
+        parser.setErrorHandler(defaultStrategy);
+        rewind(startIndex);
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        parser.sqlStatement();
+
+        String errors = errorListener.hasErrors() ? errorListener.getErrorMessages() : null;
+        errorListener.clear();
+        return errors;
+    }
+
+    /**
+     * Lexes the whole input, letting a waiting cache reset run between chunks of tokens, where the
+     * lexer is between tokens and holds no DFA state
+     */
+    private void fillYielding() {
+        for (int index = TOKENS_PER_YIELD; tokens.getType(index) != Token.EOF; index += TOKENS_PER_YIELD) {
+            cacheManager.yieldToReset();
+        }
+        tokens.fill();
+    }
+
+    /**
+     * Ends one statement's parse and starts the next one's with the cache manager, so each statement
+     * of a script counts as a parse, and a cache reset waits for no more than one statement
+     */
+    private void nextParse() {
+        try {
+            cacheManager.afterParse();
+        } finally {
+            cacheManager.beforeParse();
+        }
+    }
+
+    /**
+     * Resets the parser state for a new statement without rewinding the stream to the script start,
+     * and places it inside sqlStatements as if root had invoked it
+     */
+    private void rewind(int tokenIndex) {
+        parser.reset();
+        tokens.seek(tokenIndex);
+        // A fresh parent per statement, so the parse trees of earlier statements are not kept alive
+        parser.enterRule(new MariaDBParser.SqlStatementsContext(null, -1), STATEMENT_INVOKING_STATE,
+                MariaDBParser.RULE_sqlStatements);
+    }
+
+    private static int findInvokingState(ATN atn, int callerRule, int calleeRule) {
+        for (ATNState state : atn.states) {
+            if (state == null || state.ruleIndex != callerRule) {
+                continue;
+            }
+            for (Transition transition : state.getTransitions()) {
+                if (transition instanceof RuleTransition && transition.target.ruleIndex == calleeRule) {
+                    return state.stateNumber;
+                }
+            }
+        }
+        throw new IllegalStateException("Rule " + callerRule + " never invokes rule " + calleeRule);
+    }
+
+    /**
+     * Drops the VALUES tuples past the sampled ones from the lexed input, if sampling is on
+     * @return Number of tuples dropped
+     */
+    private int sampleValues() {
+        int rows = sampling.apply(tokens);
+        if (rows > 0) {
+            stats.recordSampledRows(rows);
+        }
+        return rows;
+    }
+
+    /**
+     * @return Errors in SyntaxErrorListener's format for the unrecognized characters lexed within
+     * [startIndex, stopIndex] of the input, or null if there are none
+     */
+    private String unrecognizedInput(int startIndex, int stopIndex) {
+        List<ValidationLexer.UnrecognizedChar> chars = lexer.getUnrecognizedInput(startIndex, stopIndex);
+        if (chars.isEmpty()) {
+            return null;
+        }
+        return formatUnrecognized(chars, chars.size());
+    }
+
+    /**
+     * @param chars The unrecognized characters to report, in input order
+     * @param count Number of unrecognized characters in all, including any not in chars
+     */
+    private static String formatUnrecognized(List<ValidationLexer.UnrecognizedChar> chars, int count) {
+        List<String> errors = new ArrayList<>();
+        for (ValidationLexer.UnrecognizedChar c : chars.subList(0, Math.min(chars.size(), MAX_REPORTED_UNRECOGNIZED))) {
+            errors.add(SyntaxErrorListener.format(c.getLine(), c.getCharPositionInLine(),
+                    "token recognition error at: '" + c.getText() + "'"));
+        }
+        if (count > MAX_REPORTED_UNRECOGNIZED) {
+            errors.add((count - MAX_REPORTED_UNRECOGNIZED) + " more unrecognized characters");
+        }
+        return String.join("; ", errors);
+    }
+
+    private boolean atStatementEnd() {
+        return atStatementEnd(tokens);
+    }
+
+    private static boolean atStatementEnd(TokenStream input) {
+        return input.LA(1) == MariaDBLexer.SEMI
+                || (input.LA(1) == MariaDBLexer.MINUS && input.LA(2) == MariaDBLexer.MINUS && input.LA(3) == MariaDBLexer.SEMI);
+    }
+
+    /**
+     * @return Whether the tokens from offset on are the trailing "--" root allows before EOF
+     */
+    private boolean endsScript(int offset) {
+        return endsScript(tokens, offset);
+    }
+
+    private static boolean endsScript(TokenStream input, int offset) {
+        return input.LA(offset) == MariaDBLexer.MINUS && input.LA(offset + 1) == MariaDBLexer.MINUS
+                && input.LA(offset + 2) == Token.EOF;
+    }
+
+    /**
+     * @return A stream reading the text in place; a view is read straight from its underlying text
+     */
+    private static CharStream charStream(CharSequence text) {
+        if (text instanceof TextSlice slice) {
+            return new CharSequenceCharStream(slice.getSource(), slice.getOffset(), slice.length());
+        }
+        return new CharSequenceCharStream(text);
+    }
+
+    /**
+     * @return Bytes allocated so far by the current thread, or 0 if the JVM does not track them
+     */
+    private static long allocatedBytes() {
+        return ALLOCATION_COUNTER != null ? ALLOCATION_COUNTER.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean counter
+                && counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+            return counter;
+        }
+        return null;
+    }
+
+    /**
+     * Drops the references to the last statement so an idle thread does not pin its tokens
+     */
+    private void release() {
+        errorListener.clear();
+        lexer.setInputStream(EMPTY_INPUT);
+        tokens.setTokenSource(lexer);
+        parser.setTokenStream(tokens);
+    }
+}
@@ -1,29 +1,140 @@
 package com.example.sqlantlr.service;
 
-import com.sql.validator.MariaDBLexer;
-import com.sql.validator.MariaDBParser;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import com.example.sqlantlr.parser.ParseBudget;
+import com.example.sqlantlr.parser.ParseBudgetExceededException;
+import com.example.sqlantlr.parser.ValuesSampling;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
 
 @Service
 public class SqlValidatorService {
 
+    // Chunks per worker thread, so a few slow chunks do not leave the other workers idle
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // A pipelined batch is closed at this many statements or characters, whichever comes first
+    private static final int BATCH_STATEMENTS = 256;
+    private static final int BATCH_CHARS = 1 << 16;
+
+    // Queued after a pipeline's last batch
+    private static final Future<List<ValidationResult>> END_OF_BATCHES = CompletableFuture.completedFuture(List.of());
+
+    private final ParserStats stats = new ParserStats();
+    private final GrammarProfiler profiler;
+
+    // Lexer/parser instances are heavyweight and not thread-safe, so each thread reuses its own; replaced
+    // when the fast lexer is turned off, so that every thread builds a new one with the generated lexer
+    private volatile ThreadLocal<SqlParserEngine> engines;
+    private final Function<Boolean, SqlParserEngine> engineFactory;
+
+    // Dedicated pool for large statement lists, sized to leave room for interactive requests
+    private final ForkJoinPool validationPool;
+
+    // Threads reading the scripts of pipelined validations, while the callers' threads handle the results
+    private final ExecutorService pipelineReaders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "sql-pipeline-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int parallelThreshold;
+    private volatile boolean fastLexer;
+
+    /**
+     * Creates a validator whose parser caches are never reset, for use outside a Spring context
+     */
+    public SqlValidatorService() {
+        this(new ParserCacheManager(), 0, 64, true, false, false, 0, 0, 0, 0, "off", 100);
+    }
+
+    @Autowired
+    public SqlValidatorService(ParserCacheManager cacheManager,
+                               @Value("${sql.validator.parallelism:0}") int parallelism,
+                               @Value("${sql.validator.parallel-threshold:64}") int parallelThreshold,
+                               @Value("${sql.validator.routing.enabled:true}") boolean routing,
+                               @Value("${sql.validator.build-parse-tree:false}") boolean buildParseTree,
+                               @Value("${sql.validator.fast-lexer:false}") boolean fastLexer,
+                               @Value("${sql.validator.budget.max-tokens:0}") long maxTokens,
+                               @Value("${sql.validator.budget.max-prediction-steps:0}") long maxPredictionSteps,
+                               @Value("${sql.validator.budget.max-millis:0}") long maxMillis,
+                               @Value("${sql.validator.profiling.sample-rate:0}") double profilingSampleRate,
+                               @Value("${sql.validator.values-sampling.mode:off}") String valuesSamplingMode,
+                               @Value("${sql.validator.values-sampling.parsed-rows:100}") int valuesSamplingRows) {
+        this.profiler = new GrammarProfiler(profilingSampleRate);
+        ParseBudget budget = new ParseBudget(maxTokens, maxPredictionSteps, maxMillis);
+        ValuesSampling sampling = new ValuesSampling(
+                ValuesSampling.Mode.valueOf(valuesSamplingMode.trim().toUpperCase(Locale.ROOT)), valuesSamplingRows);
+        this.engineFactory = fast -> new SqlParserEngine(stats, cacheManager, routing, buildParseTree, fast, budget, sampling);
+        this.engines = ThreadLocal.withInitial(() -> engineFactory.apply(fastLexer));
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.validationPool = new ForkJoinPool(threads);
+        this.parallelThreshold = parallelThreshold;
+        this.fastLexer = fastLexer;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pipelineReaders.shutdownNow();
+        validationPool.shutdownNow();
+    }
+
+    /**
+     * Receives the results of a pipelined validation
+     */
+    public interface ResultWriter {
+        void write(ValidationResult result) throws IOException;
+
+        /**
+         * Called after the results of each batch, so they can be passed on before the next batch is ready
+         */
+        default void flush() throws IOException {
+        }
+    }
+
     public static class ValidationResult {
         private final boolean valid;
         private final String error;
-        private final String query;
+        private final CharSequence query;
         private final int lineNumber;
+        private final boolean budgetExceeded;
+
+        public ValidationResult(boolean valid, String error, CharSequence query, int lineNumber) {
+            this(valid, error, query, lineNumber, false);
+        }
 
-        public ValidationResult(boolean valid, String error, String query, int lineNumber) {
+        public ValidationResult(boolean valid, String error, CharSequence query, int lineNumber, boolean budgetExceeded) {
             this.valid = valid;
             this.error = error;
             this.query = query;
             this.lineNumber = lineNumber;
+            this.budgetExceeded = budgetExceeded;
         }
 
         public boolean isValid() {
@@ -35,12 +146,19 @@ public class SqlValidatorService {
         }
 
         public String getQuery() {
-            return query;
+            return query.toString();
         }
 
         public int getLineNumber() {
             return lineNumber;
         }
+
+        /**
+         * @return Whether the statement was not validated because it used up its parse budget
+         */
+        public boolean isBudgetExceeded() {
+            return budgetExceeded;
+        }
     }
 
     /**
@@ -48,54 +166,461 @@ public class SqlValidatorService {
      * @param queries List of SQL queries to validate
      * @return List of validation results
      */
-    public List<ValidationResult> validateQueries(List<String> queries) {
+    public List<ValidationResult> validateQueries(List<? extends CharSequence> queries) {
         List<ValidationResult> results = new ArrayList<>();
 
         for (int i = 0; i < queries.size(); i++) {
-            String query = queries.get(i).trim();
-            if (query.isEmpty()) {
-                continue;
+            ValidationResult result = validateQuery(queries.get(i), i + 1);
+            if (result != null) {
+                results.add(result);
             }
+        }
 
+        return results;
+    }
+
+    /**
+     * Validates a list of SQL queries on the validation pool. The list is cut into contiguous chunks
+     * of roughly equal text size; results come back in the original order with the same line numbers
+     * as {@link #validateQueries(List)}.
+     * @param queries List of SQL queries to validate
+     * @return List of validation results
+     */
+    public List<ValidationResult> validateQueriesParallel(List<? extends CharSequence> queries) {
+        if (queries.size() < parallelThreshold || validationPool.getParallelism() < 2) {
+            return validateQueries(queries);
+        }
+        return validateParallel(queries.size(), i -> queries.get(i).length(), i -> validateQuery(queries.get(i), i + 1));
+    }
 
-            // Check if query ends with semicolon (unless it's a DELIMITER statement)
-            if (!query.endsWith(";") && !query.toUpperCase().startsWith("DELIMITER ")) {
-                results.add(new ValidationResult(
-                        false,
-                        "Missing semicolon at the end of the query",
-                        query,
-                        i + 1
-                ));
-                continue;
+    /**
+     * Validates the statements of a script split by {@link StatementScanner}, on the validation pool
+     * once there are enough of them. Each result's line number is the script line its statement
+     * starts on; a statement the script ends before its delimiter is reported as missing its semicolon.
+     * @param script The SQL script
+     * @param spans The script's statements
+     * @return List of validation results, in script order
+     */
+    public List<ValidationResult> validateSpans(CharSequence script, StatementSpans spans) {
+        if (spans.size() < parallelThreshold || validationPool.getParallelism() < 2) {
+            List<ValidationResult> results = new ArrayList<>(spans.size());
+            for (int i = 0; i < spans.size(); i++) {
+                results.add(validateSpan(script, spans, i));
             }
+            return results;
+        }
+        return validateParallel(spans.size(), spans::getLength, i -> validateSpan(script, spans, i));
+    }
+
+    /**
+     * Validates the statements of several scripts, such as the files of a migration bundle, as one
+     * workload: the statements of all of them are chunked over the validation pool together, so a
+     * few large scripts among many small ones do not leave workers idle.
+     * @param scripts The SQL scripts
+     * @param spans Each script's statements
+     * @return Each script's results, as {@link #validateSpans(CharSequence, StatementSpans)} returns them
+     */
+    public List<List<ValidationResult>> validateSpans(List<? extends CharSequence> scripts, List<StatementSpans> spans) {
+        List<List<ValidationResult>> results = new ArrayList<>(scripts.size());
+        int count = 0;
+        for (StatementSpans scriptSpans : spans) {
+            count += scriptSpans.size();
+        }
+        if (count < parallelThreshold || validationPool.getParallelism() < 2) {
+            for (int s = 0; s < scripts.size(); s++) {
+                results.add(validateSpans(scripts.get(s), spans.get(s)));
+            }
+            return results;
+        }
+
+        // Which script each statement is in, and where the script's statements start
+        int[] owners = new int[count];
+        int[] starts = new int[scripts.size() + 1];
+        for (int s = 0; s < scripts.size(); s++) {
+            starts[s + 1] = starts[s] + spans.get(s).size();
+            Arrays.fill(owners, starts[s], starts[s + 1], s);
+        }
+        List<ValidationResult> all = validateParallel(count,
+                i -> spans.get(owners[i]).getLength(i - starts[owners[i]]),
+                i -> validateSpan(scripts.get(owners[i]), spans.get(owners[i]), i - starts[owners[i]]));
+        for (int s = 0; s < scripts.size(); s++) {
+            results.add(all.subList(starts[s], starts[s + 1]));
+        }
+        return results;
+    }
+
+    /**
+     * Validates several scripts as {@link #validateScript(CharSequence)} does, as many at once as the
+     * validation pool has threads
+     * @param scripts The SQL scripts
+     * @return Each script's results
+     */
+    public List<List<ValidationResult>> validateScripts(List<? extends CharSequence> scripts) {
+        List<Callable<List<ValidationResult>>> tasks = new ArrayList<>(scripts.size());
+        for (CharSequence script : scripts) {
+            tasks.add(() -> validateScript(script));
+        }
+        List<List<ValidationResult>> results = new ArrayList<>(scripts.size());
+        try {
+            for (Future<List<ValidationResult>> future : validationPool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating scripts", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel validation failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Validates count statements on the validation pool in contiguous chunks of about the same text size
+     * @param length The text length of each statement
+     * @param validator Validates one statement, returning null for a blank one
+     * @return The non-null results, in order
+     */
+    private List<ValidationResult> validateParallel(int count, IntUnaryOperator length,
+                                                    IntFunction<ValidationResult> validator) {
+        ValidationResult[] slots = new ValidationResult[count];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int[] bounds = chunkBounds(count, length, validationPool.getParallelism() * CHUNKS_PER_THREAD);
+        for (int c = 0; c + 1 < bounds.length; c++) {
+            int from = bounds[c];
+            int to = bounds[c + 1];
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    slots[i] = validator.apply(i);
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : validationPool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating queries", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel validation failed", e.getCause());
+        }
+
+        List<ValidationResult> results = new ArrayList<>(slots.length);
+        for (ValidationResult result : slots) {
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Validates statements as they are read, with reading, validating and writing the results
+     * overlapping: a reader thread cuts the statements into batches that are validated on the
+     * validation pool, while the calling thread passes the results to the writer in order as their
+     * batches complete. At most a few batches per pool thread are queued; when that many are, the
+     * reader waits, so memory stays bounded whichever stage falls behind. Line numbers are as in
+     * {@link #validateSpans(CharSequence, StatementSpans)}.
+     * @param statements The statements, read on another thread
+     * @param writer Receives the results on the calling thread
+     * @throws IOException If the writer fails, in which case reading stops
+     * @throws UncheckedIOException If the statements could not be read
+     */
+    public void validatePipelined(Iterator<StatementIterator.Statement> statements, ResultWriter writer) throws IOException {
+        BlockingQueue<Future<List<ValidationResult>>> batches =
+                new ArrayBlockingQueue<>(validationPool.getParallelism() * CHUNKS_PER_THREAD);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Future<?> reader = pipelineReaders.submit(() -> readBatches(statements, batches, cancelled));
+        try {
+            Future<List<ValidationResult>> batch;
+            while ((batch = batches.take()) != END_OF_BATCHES) {
+                for (ValidationResult result : batch.get()) {
+                    writer.write(result);
+                }
+                writer.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating queries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException readFailure) {
+                throw readFailure;
+            }
+            throw new IllegalStateException("Pipelined validation failed", e.getCause());
+        } finally {
+            // Stops a reader still going, which may be waiting for room in the queue, and waits for it,
+            // so the caller closes the statements only once nothing reads them; then the batches it
+            // queued are dropped without being validated
+            cancelled.set(true);
+            awaitReader(reader);
+            Future<List<ValidationResult>> pending;
+            while ((pending = batches.poll()) != null) {
+                pending.cancel(true);
+            }
+        }
+    }
 
-            // Validate the individual query
+    private static void awaitReader(Future<?> reader) {
+        boolean interrupted = false;
+        while (true) {
             try {
-                // Create the lexer
-                MariaDBLexer lexer = new MariaDBLexer(CharStreams.fromString(query));
-                // Create the token stream
-                CommonTokenStream tokens = new CommonTokenStream(lexer);
-                // Create the parser
-                MariaDBParser parser = new MariaDBParser(tokens);
-                // Configure error handling
-                SyntaxErrorListener errorListener = new SyntaxErrorListener();
-                parser.removeErrorListeners();
-                parser.addErrorListener(errorListener);
-                // Parse the query
-                parser.root();
-
-                if (errorListener.hasErrors()) {
-                    results.add(new ValidationResult(false, errorListener.getErrorMessages(), query, i + 1));
-                } else {
-                    results.add(new ValidationResult(true, null, query, i + 1));
+                reader.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException | CancellationException e) {
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readBatches(Iterator<StatementIterator.Statement> statements,
+                             BlockingQueue<Future<List<ValidationResult>>> batches, AtomicBoolean cancelled) {
+        Future<List<ValidationResult>> last = END_OF_BATCHES;
+        try {
+            List<StatementIterator.Statement> batch = new ArrayList<>();
+            int batchChars = 0;
+            while (!cancelled.get() && statements.hasNext()) {
+                StatementIterator.Statement statement = statements.next();
+                batch.add(statement);
+                batchChars += statement.getText().length();
+                if (batch.size() == BATCH_STATEMENTS || batchChars >= BATCH_CHARS || !statements.hasNext()) {
+                    List<StatementIterator.Statement> full = batch;
+                    Future<List<ValidationResult>> validation = validationPool.submit(() -> validateBatch(full));
+                    if (!enqueue(batches, validation, cancelled)) {
+                        validation.cancel(true);
+                        return;
+                    }
+                    batch = new ArrayList<>();
+                    batchChars = 0;
+                }
+            }
+        } catch (RuntimeException e) {
+            last = CompletableFuture.failedFuture(e);
+        }
+        enqueue(batches, last, cancelled);
+    }
+
+    /**
+     * Waits for room in the queue, giving up if the pipeline is cancelled
+     * @return Whether the batch was queued
+     */
+    private static boolean enqueue(BlockingQueue<Future<List<ValidationResult>>> batches,
+                                   Future<List<ValidationResult>> batch, AtomicBoolean cancelled) {
+        try {
+            while (!cancelled.get()) {
+                if (batches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
                 }
-            } catch (ParseCancellationException | RecognitionException e) {
-                results.add(new ValidationResult(false, e.getMessage(), query, i + 1));
-            } catch (Exception e) {
-                results.add(new ValidationResult(false, "Unexpected error: " + e.getMessage(), query, i + 1));
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private List<ValidationResult> validateBatch(List<StatementIterator.Statement> batch) {
+        List<ValidationResult> results = new ArrayList<>(batch.size());
+        for (StatementIterator.Statement statement : batch) {
+            results.add(validateScanned(statement.getText(), statement.getLine(), statement.isTerminated()));
         }
+        return results;
+    }
 
+    /**
+     * Validates a whole script in a single lexer/parser pass instead of splitting it first; the
+     * mysql client's DELIMITER command is applied. Each result's line number is the script line its
+     * statement starts on.
+     * @param script The SQL script
+     * @return List of validation results
+     */
+    public List<ValidationResult> validateScript(CharSequence script) {
+        List<SqlParserEngine.ScriptStatement> statements;
+        try {
+            statements = engines.get().parseScript(script);
+        } catch (Exception e) {
+            return List.of(new ValidationResult(false, "Unexpected error: " + e.getMessage(),
+                    TextSlice.trimmed(script, 0, script.length()), 1));
+        }
+        List<ValidationResult> results = new ArrayList<>(statements.size());
+        for (SqlParserEngine.ScriptStatement statement : statements) {
+            results.add(new ValidationResult(statement.getErrors() == null, statement.getErrors(),
+                    statement.getText(), statement.getLine(), statement.isBudgetExceeded()));
+        }
         return results;
     }
+
+    /**
+     * Validates a single statement read from a stream without holding it in memory, for statements
+     * such as a mysqldump extended INSERT that are too large to validate as a String. The result
+     * shows the start of the statement in place of its full text.
+     * @param reader The SQL statement
+     * @return The validation result, or null if the statement is blank
+     * @throws IOException If the statement could not be read
+     */
+    public ValidationResult validateStream(Reader reader) throws IOException {
+        StatementStreamReader statement = new StatementStreamReader(reader);
+        String errors;
+        try {
+            errors = engines.get().parseStream(statement);
+        } catch (ParseBudgetExceededException e) {
+            // The rest of the statement is left unread
+            return new ValidationResult(false, e.getMessage(), statement.getPreview(), 1, true);
+        } catch (ParseCancellationException | RecognitionException e) {
+            errors = e.getMessage();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            errors = "Unexpected error: " + e.getMessage();
+        }
+        if (statement.isBlank()) {
+            return null;
+        }
+
+        // Checked after the parse, as the end is only known once the whole statement is read
+        String preview = statement.getPreview();
+        if (statement.getLastChar() != ';' && !startsWithIgnoreCase(preview, "DELIMITER ")) {
+            return new ValidationResult(false, "Missing semicolon at the end of the query", preview, 1);
+        }
+        return new ValidationResult(errors == null, errors, preview, 1);
+    }
+
+    /**
+     * Splits count statements into at most maxChunks contiguous ranges holding about the same number of characters
+     * @return Range boundaries; chunk c covers [bounds[c], bounds[c + 1])
+     */
+    private static int[] chunkBounds(int count, IntUnaryOperator length, int maxChunks) {
+        long totalChars = 0;
+        for (int i = 0; i < count; i++) {
+            totalChars += length.applyAsInt(i);
+        }
+        long target = Math.max(1, totalChars / maxChunks);
+
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        long chunkChars = 0;
+        for (int i = 0; i < count; i++) {
+            chunkChars += length.applyAsInt(i);
+            if (chunkChars >= target && i + 1 < count) {
+                bounds.add(i + 1);
+                chunkChars = 0;
+            }
+        }
+        bounds.add(count);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Validates a single SQL query
+     * @param rawQuery The query as split from its source; validated in place, without copying its text
+     * @param lineNumber The number reported with the result
+     * @return The validation result, or null if the query is blank
+     */
+    private ValidationResult validateQuery(CharSequence rawQuery, int lineNumber) {
+        TextSlice query = TextSlice.trimmed(rawQuery, 0, rawQuery.length());
+        if (query.isEmpty()) {
+            return null;
+        }
+
+        // Check if query ends with semicolon (unless it's a DELIMITER statement)
+        if (query.charAt(query.length() - 1) != ';' && !startsWithIgnoreCase(query, "DELIMITER ")) {
+            return new ValidationResult(
+                    false,
+                    "Missing semicolon at the end of the query",
+                    query,
+                    lineNumber
+            );
+        }
+        return validateStatement(query, query, lineNumber);
+    }
+
+    private ValidationResult validateSpan(CharSequence script, StatementSpans spans, int index) {
+        return validateScanned(spans.getText(script, index), spans.getLine(index), spans.isTerminated(index));
+    }
+
+    /**
+     * Validates a statement split by {@link StatementScanner}
+     * @param terminated Whether the statement is ended by its delimiter
+     */
+    private ValidationResult validateScanned(CharSequence query, int lineNumber, boolean terminated) {
+        if (!terminated) {
+            return new ValidationResult(false, "Missing semicolon at the end of the query", query, lineNumber);
+        }
+        // A delimiter set by DELIMITER is not part of the statement, which the parser expects to end with ';'
+        CharSequence parsed = query.charAt(query.length() - 1) == ';' ? query : new TerminatedText(query);
+        return validateStatement(parsed, query, lineNumber);
+    }
+
+    /**
+     * Parses a statement that is not blank and has its terminator
+     * @param parsed The text to parse
+     * @param query The text reported with the result
+     */
+    private ValidationResult validateStatement(CharSequence parsed, CharSequence query, int lineNumber) {
+        try {
+            SqlParserEngine engine = engines.get();
+            String errors = profiler.shouldSample()
+                    ? engine.parseProfiled(parsed, profiler::record)
+                    : engine.parse(parsed);
+            if (errors != null) {
+                return new ValidationResult(false, errors, query, lineNumber);
+            } else {
+                return new ValidationResult(true, null, query, lineNumber);
+            }
+        } catch (ParseCancellationException | RecognitionException e) {
+            return new ValidationResult(false, e.getMessage(), query, lineNumber);
+        } catch (ParseBudgetExceededException e) {
+            return new ValidationResult(false, e.getMessage(), query, lineNumber, true);
+        } catch (Exception e) {
+            return new ValidationResult(false, "Unexpected error: " + e.getMessage(), query, lineNumber);
+        }
+    }
+
+    private static boolean startsWithIgnoreCase(CharSequence text, String prefix) {
+        if (text.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toUpperCase(text.charAt(i)) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The parser counters of this validator
+     */
+    public ParserStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return Whether statements are lexed with the hand-written FastValidationLexer
+     */
+    public boolean isFastLexer() {
+        return fastLexer;
+    }
+
+    /**
+     * Lexes with the generated lexer from now on, as when FastValidationLexer has been found to differ from it
+     */
+    public synchronized void disableFastLexer() {
+        if (fastLexer) {
+            fastLexer = false;
+            engines = ThreadLocal.withInitial(() -> engineFactory.apply(false));
+        }
+    }
+
+    /**
+     * @return The decision profiler fed by sampled statements of this validator
+     */
+    public GrammarProfiler getProfiler() {
+        return profiler;
+    }
 }
\ No newline at end of file
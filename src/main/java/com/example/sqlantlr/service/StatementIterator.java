@@ -0,0 +1,182 @@
+package com.example.sqlantlr.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the statements of a script from a Reader one at a time, splitting them as
+ * {@link StatementScanner} does, so that memory is bounded by the largest statement rather than
+ * by the script.
+ *
+ * The text is read into a buffer that holds the statement being scanned and what follows it. When
+ * a statement runs into the end of the buffer, the part before it is dropped, more text is read,
+ * and the statement is scanned again from its start; the buffer only grows when one statement
+ * fills it. Each statement returned is a copy of its text, so it stays valid as the buffer is reused.
+ */
+public class StatementIterator implements Iterator<StatementIterator.Statement>, Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final StatementScanner scanner = new StatementScanner("");
+
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+    private int length;
+    private boolean endOfInput;
+
+    private Statement next;
+
+    public StatementIterator(Reader reader) {
+        this.reader = reader;
+        scanner.resume(new BufferText(buffer, 0), false, 1, ";");
+    }
+
+    /**
+     * @throws UncheckedIOException If the script could not be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * @throws UncheckedIOException If the script could not be read
+     */
+    @Override
+    public Statement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Statement statement = next;
+        next = null;
+        return statement;
+    }
+
+    /**
+     * @return The next statement, or null once the script has none left
+     */
+    private Statement read() throws IOException {
+        while (true) {
+            // Where to scan again from if the buffer runs out
+            int mark = scanner.getPosition();
+            int markLine = scanner.getCurrentLine();
+            String markDelimiter = scanner.getDelimiter();
+
+            boolean found = scanner.next();
+            if (found && (scanner.isTerminated() || endOfInput)) {
+                return new Statement(new String(buffer, scanner.getStart(), scanner.getStop() - scanner.getStart()),
+                        scanner.getLine(), scanner.isTerminated());
+            }
+            if (endOfInput) {
+                return null;
+            }
+
+            // Keep the text from the mark on, and fill the rest of the buffer
+            System.arraycopy(buffer, mark, buffer, 0, length - mark);
+            length -= mark;
+            if (length == buffer.length) {
+                char[] larger = new char[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, length);
+                buffer = larger;
+            }
+            fill();
+            scanner.resume(new BufferText(buffer, length), endOfInput, markLine, markDelimiter);
+        }
+    }
+
+    private void fill() throws IOException {
+        while (length < buffer.length) {
+            int read = reader.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                endOfInput = true;
+                return;
+            }
+            length += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * The filled part of the buffer; unlike CharBuffer, charAt is a plain array access
+     */
+    private static final class BufferText implements CharSequence {
+        private final char[] chars;
+        private final int length;
+
+        BufferText(char[] chars, int length) {
+            this.chars = chars;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+
+    /**
+     * One statement of the script
+     */
+    public static class Statement {
+        private final String text;
+        private final int line;
+        private final boolean terminated;
+
+        public Statement(String text, int line, boolean terminated) {
+            this.text = text;
+            this.line = line;
+            this.terminated = terminated;
+        }
+
+        /**
+         * @return The statement's text, which includes a ';' ending it but not a delimiter set by DELIMITER
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return The script line the statement starts on
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return Whether the statement is ended by the delimiter, rather than by the end of the script
+         */
+        public boolean isTerminated() {
+            return terminated;
+        }
+    }
+}
@@ -0,0 +1,648 @@
+package com.example.sqlantlr.service;
+
+import java.util.Arrays;
+
+/**
+ * Splits a SQL script into statements in a single pass over its characters, without lexing it or
+ * copying any of its text.
+ *
+ * Quotes, backticks, backslash escapes, and --, # and block comments are skipped, so a delimiter
+ * inside them does not end a statement. A DELIMITER command at the start of a statement sets the
+ * delimiter to the word following it on the same line, as the mysql client does; the command is not
+ * a statement itself. While the delimiter is ';', compound statements are tracked by their nesting
+ * depth the way StatementSplitter tracks them over tokens: CASE, and BEGIN (other than the one
+ * starting a transaction), IF, LOOP, WHILE, REPEAT and FOR where a statement starts open one, and END
+ * closes one where a statement could start, or wherever it ends a CASE expression or REPEAT loop. A
+ * routine or trigger body starts after its header, so its BEGIN opens one too; elsewhere, such as in
+ * a column list or an expression, BEGIN and END are names. A routine or trigger body written without
+ * DELIMITER thus stays in one statement.
+ *
+ * Each statement starts at its first character that is not whitespace or a comment, and ends after
+ * the ';' ending it, or before a delimiter set by DELIMITER.
+ */
+public final class StatementScanner {
+
+    // What the last word or symbol of the statement so far was, as far as compound statements care
+    private static final int STATEMENT_START = 0;
+    private static final int OTHER = 1;
+    private static final int SEMI = 2;
+    // BEGIN, THEN, ELSE, DO, LOOP, REPEAT or a label's ':', after which a statement of a compound body starts
+    private static final int BODY_START = 3;
+    private static final int DOT = 4;
+    // What may end a routine header: ')', a characteristic such as DETERMINISTIC or COMMENT '...', or a type
+    private static final int HEADER_END = 5;
+    // RETURNS, CHARSET, SET, COLLATE, FOLLOWS or PRECEDES, whose next word ends a routine header
+    private static final int NAME_PREFIX = 6;
+    private static final int EACH = 7;
+    // FOR EACH ROW, which ends a trigger header
+    private static final int EACH_ROW = 8;
+
+    // What the statement creates, as far as where a routine body may start
+    private static final int NO_ROUTINE = 0;
+    // A procedure or function whose parameter list has not been read yet
+    private static final int ROUTINE = 1;
+    // A routine past its parameter list, or a trigger, whose body follows its header
+    private static final int ROUTINE_HEADER = 2;
+
+    // The words the scanner tracks
+    private static final int NONE = 0;
+    private static final int BEGIN = 1;
+    private static final int CASE = 2;
+    private static final int IF_WHILE_FOR = 3;
+    private static final int LOOP_REPEAT = 4;
+    private static final int END = 5;
+    private static final int THEN_ELSE = 6;
+    private static final int DO = 7;
+    private static final int WORK = 8;
+    private static final int CREATE = 9;
+    private static final int PROCEDURE_FUNCTION = 10;
+    private static final int TRIGGER = 11;
+    private static final int EACH_WORD = 12;
+    private static final int ROW = 13;
+    private static final int NAME_PREFIX_WORD = 14;
+    private static final int CHARACTERISTIC = 15;
+
+    private static final boolean[] WORD_CHARS = new boolean[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            WORD_CHARS[c] = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '$';
+        }
+    }
+
+    private CharSequence text;
+    private int length;
+    // Whether the text is all there is, rather than the part of a stream read so far
+    private boolean complete = true;
+    private int position;
+    private int line = 1;
+    private String delimiter = ";";
+
+    // For ', " and `, where a quote of that kind was found never to be closed
+    private final int[] unclosedFrom = new int[3];
+
+    // The statement found by the last call to next()
+    private int start;
+    private int stop;
+    private int startLine;
+    private boolean terminated;
+
+    public StatementScanner(CharSequence text) {
+        resume(text, true, 1, ";");
+    }
+
+    /**
+     * Carries on scanning a stream from the start of new text, such as a buffer refilled from the
+     * position and state a previous scan stopped at. While the text is not complete, a statement
+     * running into its end is returned unterminated, and a DELIMITER command or quote running into it
+     * is left unread, so the caller reads more and scans again from the statement's start.
+     * @param complete Whether the text runs to the end of the stream
+     * @param line The line the text starts on
+     * @param delimiter The delimiter in effect at its start
+     */
+    void resume(CharSequence text, boolean complete, int line, String delimiter) {
+        resume(text, 0, text.length(), complete, line, delimiter);
+    }
+
+    /**
+     * Scans text[from, to) as {@link #resume(CharSequence, boolean, int, String)} scans a whole text;
+     * positions stay those of the whole text
+     */
+    void resume(CharSequence text, int from, int to, boolean complete, int line, String delimiter) {
+        this.text = text;
+        this.length = to;
+        this.complete = complete;
+        this.position = from;
+        this.line = line;
+        this.delimiter = delimiter;
+        Arrays.fill(unclosedFrom, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Carries on scanning the same text from another position between statements
+     */
+    void moveTo(int position, int line, String delimiter) {
+        this.position = position;
+        this.line = line;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @return The statements of the script
+     */
+    public static StatementSpans scan(CharSequence text) {
+        StatementScanner scanner = new StatementScanner(text);
+        StatementSpans spans = new StatementSpans();
+        while (scanner.next()) {
+            spans.add(scanner.start, scanner.stop - scanner.start, scanner.startLine, scanner.terminated);
+        }
+        return spans;
+    }
+
+    /**
+     * Finds the next statement
+     * @return Whether there is one; false once only whitespace, comments and empty statements are left
+     */
+    public boolean next() {
+        while (skipBlank()) {
+            if (regionMatches(position, delimiter)) {
+                // An empty statement
+                position += delimiter.length();
+            } else if (!readDelimiterCommand()) {
+                start = position;
+                startLine = line;
+                if (delimiter.equals(";")) {
+                    scanStatement();
+                } else {
+                    scanDelimited();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Start of the statement found by the last call to next()
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return End of the statement found by the last call to next(): after its ';', or before its delimiter
+     */
+    public int getStop() {
+        return stop;
+    }
+
+    /**
+     * @return The line the statement found by the last call to next() starts on
+     */
+    public int getLine() {
+        return startLine;
+    }
+
+    /**
+     * @return Whether the statement found by the last call to next() is ended by the delimiter, rather than by the end of the text
+     */
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    /**
+     * @return Where the scan is, which is where the next statement or the blank text before it starts between statements
+     */
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return The line the scan is on
+     */
+    int getCurrentLine() {
+        return line;
+    }
+
+    String getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Scans a statement while the delimiter is ';', which ends it only outside compound statements
+     */
+    private void scanStatement() {
+        int depth = 0;
+        // Bit d is set when the compound opened at depth d is a CASE expression, in which THEN and ELSE
+        // are followed by an expression, such as IF(...), rather than by statements
+        long caseExpressions = 0;
+        int previous = STATEMENT_START;
+        // Whether the last word was an END closing a compound statement, which IF, CASE and the like may follow
+        boolean afterEnd = false;
+        // Parentheses open at depth 0, and the kind of routine the statement creates, if any
+        int parentheses = 0;
+        int routine = NO_ROUTINE;
+        // Whether the statement starts with CREATE, so it may define a routine
+        boolean create = false;
+        while (position < length) {
+            char c = text.charAt(position);
+            if (isWordChar(c)) {
+                int wordStart = position;
+                do {
+                    position++;
+                } while (position < length && isWordChar(text.charAt(position)));
+                int keyword = keyword(wordStart, position - wordStart);
+                int before = previous;
+                previous = before == NAME_PREFIX ? HEADER_END : OTHER;
+                if (keyword != NONE) {
+                    boolean qualified = before == DOT || nextSymbol() == '.';
+                    switch (keyword) {
+                        case BEGIN -> {
+                            boolean statementStart = isBodyStatementStart(before)
+                                    && (before != STATEMENT_START || !isTransactionBegin());
+                            boolean bodyStart = depth == 0 && parentheses == 0
+                                    && (before == EACH_ROW || (before == HEADER_END && routine == ROUTINE_HEADER));
+                            if (!qualified && (statementStart || bodyStart)) {
+                                depth++;
+                                previous = BODY_START;
+                            }
+                        }
+                        case CASE -> {
+                            if (!qualified && !afterEnd) {
+                                caseExpressions = isBodyStatementStart(before)
+                                        ? caseExpressions & ~(1L << depth) : caseExpressions | (1L << depth);
+                                depth++;
+                            }
+                        }
+                        case IF_WHILE_FOR -> {
+                            if (!qualified && !afterEnd && isBodyStatementStart(before)) {
+                                depth++;
+                            }
+                        }
+                        case LOOP_REPEAT -> {
+                            if (!qualified && !afterEnd && isBodyStatementStart(before)) {
+                                depth++;
+                            }
+                            previous = BODY_START;
+                        }
+                        case END -> {
+                            if (depth > 0 && !qualified && ((caseExpressions & (1L << (depth - 1))) != 0
+                                    // REPEAT ... UNTIL ends with an expression
+                                    || isBodyStatementStart(before) || isFollowedBy("REPEAT"))) {
+                                depth--;
+                                afterEnd = true;
+                                continue;
+                            }
+                        }
+                        case THEN_ELSE -> {
+                            if (depth == 0 || (caseExpressions & (1L << (depth - 1))) == 0) {
+                                previous = BODY_START;
+                            }
+                        }
+                        case DO -> previous = BODY_START;
+                        case CREATE -> create |= before == STATEMENT_START;
+                        case PROCEDURE_FUNCTION, TRIGGER -> {
+                            if (create && depth == 0 && parentheses == 0 && routine == NO_ROUTINE) {
+                                routine = keyword == TRIGGER ? ROUTINE_HEADER : ROUTINE;
+                            }
+                        }
+                        case EACH_WORD -> previous = EACH;
+                        case ROW -> {
+                            if (before == EACH) {
+                                previous = EACH_ROW;
+                            }
+                        }
+                        case NAME_PREFIX_WORD -> previous = NAME_PREFIX;
+                        case CHARACTERISTIC -> previous = HEADER_END;
+                        default -> {
+                        }
+                    }
+                }
+                afterEnd = false;
+                continue;
+            }
+            switch (c) {
+                case '\n' -> {
+                    line++;
+                    position++;
+                    continue;
+                }
+                case ' ', '\t', '\r', '\f' -> {
+                    position++;
+                    continue;
+                }
+                case ';' -> {
+                    position++;
+                    if (depth == 0) {
+                        end(position, true);
+                        return;
+                    }
+                    previous = SEMI;
+                }
+                case '.' -> {
+                    position++;
+                    previous = DOT;
+                }
+                case ':' -> {
+                    position++;
+                    previous = BODY_START;
+                }
+                case '(' -> {
+                    position++;
+                    if (depth == 0) {
+                        parentheses++;
+                    }
+                    previous = OTHER;
+                }
+                case ')' -> {
+                    position++;
+                    if (depth == 0 && parentheses > 0 && --parentheses == 0 && routine == ROUTINE) {
+                        routine = ROUTINE_HEADER;
+                    }
+                    previous = HEADER_END;
+                }
+                default -> {
+                    if (c == '\'' || c == '"' || c == '`') {
+                        skipQuoted(c);
+                        // A string may be a routine's COMMENT, and a name the trigger FOLLOWS names
+                        previous = c != '`' || previous == NAME_PREFIX ? HEADER_END : OTHER;
+                    } else if (!isCommentStart(c) || !skipComment()) {
+                        position++;
+                        previous = OTHER;
+                    }
+                    continue;
+                }
+            }
+            afterEnd = false;
+        }
+        end(length, false);
+    }
+
+    /**
+     * Scans a statement while a delimiter other than ';' is set, which may end it anywhere outside
+     * quotes and comments, even in the middle of a word
+     */
+    private void scanDelimited() {
+        char first = delimiter.charAt(0);
+        while (position < length) {
+            char c = text.charAt(position);
+            if (c == first && regionMatches(position, delimiter)) {
+                end(position, true);
+                position += delimiter.length();
+                return;
+            }
+            if (c == '\n') {
+                line++;
+                position++;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                skipQuoted(c);
+            } else if (!isCommentStart(c) || !skipComment()) {
+                position++;
+            }
+        }
+        end(length, false);
+    }
+
+    private void end(int end, boolean delimited) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        stop = end;
+        terminated = delimited;
+    }
+
+    /**
+     * Skips whitespace and comments
+     * @return Whether any text is left
+     */
+    private boolean skipBlank() {
+        while (position < length) {
+            char c = text.charAt(position);
+            if (c == '\n') {
+                line++;
+                position++;
+            } else if (c <= ' ') {
+                position++;
+            } else if (!skipComment()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skips the comment starting at the current position, if there is one
+     * @return Whether there was one
+     */
+    private boolean skipComment() {
+        char c = text.charAt(position);
+        char next = position + 1 < length ? text.charAt(position + 1) : 0;
+        if (c == '#' || (c == '-' && next == '-' && (position + 2 == length || isCommentSpace(text.charAt(position + 2))))) {
+            // Up to the line break, which is left for the caller to count
+            while (position < length && text.charAt(position) != '\n') {
+                position++;
+            }
+            return true;
+        }
+        if (c == '/' && next == '*') {
+            position += 2;
+            while (position < length && !(text.charAt(position) == '*' && position + 1 < length && text.charAt(position + 1) == '/')) {
+                if (text.charAt(position) == '\n') {
+                    line++;
+                }
+                position++;
+            }
+            position = Math.min(position + 2, length);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether a comment may start with the character
+     */
+    private static boolean isCommentStart(char c) {
+        return c == '-' || c == '#' || c == '/';
+    }
+
+    private static boolean isCommentSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    /**
+     * Skips a quoted string or identifier; a doubled quote simply closes and reopens it. A quote that
+     * is never closed is an ordinary character, so the statements after it are still found, as the
+     * lexer finds them.
+     */
+    private void skipQuoted(char quote) {
+        int index = quote == '\'' ? 0 : quote == '"' ? 1 : 2;
+        if (position >= unclosedFrom[index]) {
+            // Any later quote of this kind is as unclosed as an earlier one
+            position++;
+            return;
+        }
+        CharSequence text = this.text;
+        boolean escapes = quote != '`';
+        int lines = 0;
+        int i = position + 1;
+        while (i < length) {
+            char c = text.charAt(i++);
+            if (c == quote) {
+                position = i;
+                line += lines;
+                return;
+            }
+            if (c == '\n') {
+                lines++;
+            } else if (c == '\\' && escapes && i < length) {
+                if (text.charAt(i) == '\n') {
+                    lines++;
+                }
+                i++;
+            }
+        }
+        if (!complete) {
+            // The quote may yet be closed by text not read yet
+            position = length;
+            return;
+        }
+        unclosedFrom[index] = position;
+        position++;
+    }
+
+    /**
+     * Applies a DELIMITER command at the current position, leaving the position after its word
+     * @return Whether there was one
+     */
+    private boolean readDelimiterCommand() {
+        if (!regionMatchesIgnoreCase(position, "DELIMITER") || position + 9 >= length
+                || (text.charAt(position + 9) != ' ' && text.charAt(position + 9) != '\t')) {
+            return false;
+        }
+        int wordStart = position + 9;
+        while (wordStart < length && (text.charAt(wordStart) == ' ' || text.charAt(wordStart) == '\t')) {
+            wordStart++;
+        }
+        int wordEnd = wordStart;
+        while (wordEnd < length && !Character.isWhitespace(text.charAt(wordEnd))) {
+            wordEnd++;
+        }
+        if (wordEnd == length && !complete) {
+            // The word may go on in text not read yet
+            position = length;
+            return true;
+        }
+        if (wordEnd == wordStart) {
+            return false;
+        }
+        delimiter = text.subSequence(wordStart, wordEnd).toString();
+        position = wordEnd;
+        return true;
+    }
+
+    /**
+     * @return Whether the BEGIN just scanned, at the start of a statement, starts a transaction
+     */
+    private boolean isTransactionBegin() {
+        int saved = position;
+        int savedLine = line;
+        boolean transaction = !skipBlank() || text.charAt(position) == ';';
+        if (!transaction && isWordChar(text.charAt(position))) {
+            int wordStart = position;
+            while (position < length && isWordChar(text.charAt(position))) {
+                position++;
+            }
+            transaction = keyword(wordStart, position - wordStart) == WORK;
+        }
+        position = saved;
+        line = savedLine;
+        return transaction;
+    }
+
+    /**
+     * @return Whether a word following one of the given kind is where a statement of a compound body can start
+     */
+    private static boolean isBodyStatementStart(int previous) {
+        return previous == STATEMENT_START || previous == SEMI || previous == BODY_START;
+    }
+
+    /**
+     * @return The next character after spaces and tabs, or 0 at the end of the text
+     */
+    private char nextSymbol() {
+        int i = position;
+        while (i < length && (text.charAt(i) == ' ' || text.charAt(i) == '\t')) {
+            i++;
+        }
+        return i < length ? text.charAt(i) : 0;
+    }
+
+    /**
+     * @return Whether the next word, after whitespace, is the given one
+     * @param upper The word, in upper case
+     */
+    private boolean isFollowedBy(String upper) {
+        int i = position;
+        while (i < length && text.charAt(i) <= ' ') {
+            i++;
+        }
+        return regionMatchesIgnoreCase(i, upper) && (i + upper.length() == length || !isWordChar(text.charAt(i + upper.length())));
+    }
+
+    /**
+     * @return Which of the words the scanner tracks the word at from is, or NONE
+     */
+    private int keyword(int from, int wordLength) {
+        if (wordLength < 2 || wordLength > 13) {
+            return NONE;
+        }
+        // Lower case for letters; anything else matches no case
+        return switch (text.charAt(from) | 0x20) {
+            case 'b' -> wordLength == 5 && regionMatchesIgnoreCase(from, "BEGIN") ? BEGIN : NONE;
+            case 'c' -> wordLength == 4 && regionMatchesIgnoreCase(from, "CASE") ? CASE
+                    : wordLength == 6 && regionMatchesIgnoreCase(from, "CREATE") ? CREATE
+                    : wordLength == 7 && (regionMatchesIgnoreCase(from, "CHARSET") || regionMatchesIgnoreCase(from, "COLLATE"))
+                    ? NAME_PREFIX_WORD : NONE;
+            case 'd' -> wordLength == 2 && regionMatchesIgnoreCase(from, "DO") ? DO
+                    : (wordLength == 4 && regionMatchesIgnoreCase(from, "DATA"))
+                    || (wordLength == 7 && regionMatchesIgnoreCase(from, "DEFINER"))
+                    || (wordLength == 13 && regionMatchesIgnoreCase(from, "DETERMINISTIC")) ? CHARACTERISTIC : NONE;
+            case 'e' -> wordLength == 3 && regionMatchesIgnoreCase(from, "END") ? END
+                    : wordLength == 4 && regionMatchesIgnoreCase(from, "ELSE") ? THEN_ELSE
+                    : wordLength == 4 && regionMatchesIgnoreCase(from, "EACH") ? EACH_WORD : NONE;
+            case 'f' -> wordLength == 3 && regionMatchesIgnoreCase(from, "FOR") ? IF_WHILE_FOR
+                    : wordLength == 8 && regionMatchesIgnoreCase(from, "FUNCTION") ? PROCEDURE_FUNCTION
+                    : wordLength == 7 && regionMatchesIgnoreCase(from, "FOLLOWS") ? NAME_PREFIX_WORD : NONE;
+            case 'i' -> wordLength == 2 && regionMatchesIgnoreCase(from, "IF") ? IF_WHILE_FOR
+                    : wordLength == 7 && regionMatchesIgnoreCase(from, "INVOKER") ? CHARACTERISTIC : NONE;
+            case 'l' -> wordLength == 4 && regionMatchesIgnoreCase(from, "LOOP") ? LOOP_REPEAT : NONE;
+            case 'p' -> wordLength == 9 && regionMatchesIgnoreCase(from, "PROCEDURE") ? PROCEDURE_FUNCTION
+                    : wordLength == 8 && regionMatchesIgnoreCase(from, "PRECEDES") ? NAME_PREFIX_WORD : NONE;
+            case 'r' -> wordLength == 6 && regionMatchesIgnoreCase(from, "REPEAT") ? LOOP_REPEAT
+                    : wordLength == 3 && regionMatchesIgnoreCase(from, "ROW") ? ROW
+                    : wordLength == 7 && regionMatchesIgnoreCase(from, "RETURNS") ? NAME_PREFIX_WORD : NONE;
+            case 's' -> wordLength == 3 && regionMatchesIgnoreCase(from, "SET") ? NAME_PREFIX_WORD
+                    : (wordLength == 3 && regionMatchesIgnoreCase(from, "SQL"))
+                    || (wordLength == 6 && regionMatchesIgnoreCase(from, "SIGNED")) ? CHARACTERISTIC : NONE;
+            case 't' -> wordLength == 4 && regionMatchesIgnoreCase(from, "THEN") ? THEN_ELSE
+                    : wordLength == 7 && regionMatchesIgnoreCase(from, "TRIGGER") ? TRIGGER : NONE;
+            case 'u' -> wordLength == 8 && regionMatchesIgnoreCase(from, "UNSIGNED") ? CHARACTERISTIC : NONE;
+            case 'w' -> wordLength == 5 && regionMatchesIgnoreCase(from, "WHILE") ? IF_WHILE_FOR
+                    : wordLength == 4 && regionMatchesIgnoreCase(from, "WORK") ? WORK : NONE;
+            case 'z' -> wordLength == 8 && regionMatchesIgnoreCase(from, "ZEROFILL") ? CHARACTERISTIC : NONE;
+            default -> NONE;
+        };
+    }
+
+    private static boolean isWordChar(char c) {
+        return c >= 128 || WORD_CHARS[c];
+    }
+
+    private boolean regionMatches(int offset, String part) {
+        if (offset + part.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < part.length(); i++) {
+            if (text.charAt(offset + i) != part.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param upper The text to match, in upper case
+     */
+    private boolean regionMatchesIgnoreCase(int offset, String upper) {
+        if (offset + upper.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < upper.length(); i++) {
+            char c = text.charAt(offset + i);
+            if (c != upper.charAt(i) && (char) (c - ('a' - 'A')) != upper.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.sqlantlr.service;
+
+import java.util.Arrays;
+
+/**
+ * The statements of a script as ranges of its text, kept in parallel int arrays rather than as one
+ * object per statement.
+ */
+public final class StatementSpans {
+
+    private int[] offsets = new int[64];
+    private int[] lengths = new int[64];
+    private int[] lines = new int[64];
+    private boolean[] terminated = new boolean[64];
+    private int size;
+
+    void add(int offset, int length, int line, boolean delimited) {
+        if (size == offsets.length) {
+            int capacity = size * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            terminated = Arrays.copyOf(terminated, capacity);
+        }
+        offsets[size] = offset;
+        lengths[size] = length;
+        lines[size] = line;
+        terminated[size] = delimited;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Start of the statement in the script
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @return Length of the statement's text, which includes a ';' ending it but not a delimiter set by DELIMITER
+     */
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * @return The script line the statement starts on
+     */
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    /**
+     * @return Whether the statement is ended by the delimiter, rather than by the end of the script
+     */
+    public boolean isTerminated(int index) {
+        return terminated[index];
+    }
+
+    /**
+     * @return A view of the statement's text in the script
+     */
+    public TextSlice getText(CharSequence script, int index) {
+        return new TextSlice(script, offsets[index], lengths[index]);
+    }
+}
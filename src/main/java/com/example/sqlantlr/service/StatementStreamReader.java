@@ -0,0 +1,126 @@
+package com.example.sqlantlr.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A Reader passing on a statement trimmed as {@link TextSlice#trimmed} trims it, so a streamed
+ * statement lexes to the same positions as the same statement read whole. Leading whitespace is
+ * dropped and whitespace is held back until a later character shows it is not trailing.
+ *
+ * Since the statement is never held in full, the reader keeps what the validator checks besides
+ * the syntax: its first characters, also shown in place of the statement text, and its last one.
+ */
+class StatementStreamReader extends Reader {
+
+    // Characters of the statement kept for display
+    private static final int PREVIEW_LENGTH = 200;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+
+    // Whitespace read since the last other character, and how much of it has been passed on
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingRead;
+
+    private final StringBuilder preview = new StringBuilder();
+    private boolean truncated;
+    private int last = -1;
+
+    StatementStreamReader(Reader in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pendingRead < pending.length()) {
+            return pending.charAt(pendingRead++);
+        }
+        if (pendingRead > 0) {
+            pending.setLength(0);
+            pendingRead = 0;
+        }
+        while (true) {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    // Whitespace still pending is trailing and is dropped
+                    limit = 0;
+                    return -1;
+                }
+            }
+            char c = buffer[position++];
+            if (c <= ' ') {
+                if (last >= 0) {
+                    pending.append(c);
+                    addToPreview(c);
+                }
+                continue;
+            }
+            last = c;
+            addToPreview(c);
+            if (pending.length() > 0) {
+                pending.append(c);
+                return pending.charAt(pendingRead++);
+            }
+            return c;
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        for (int i = 0; i < len; i++) {
+            int c = read();
+            if (c < 0) {
+                return i > 0 ? i : -1;
+            }
+            cbuf[off + i] = (char) c;
+            // Only block for more when nothing is buffered
+            if (position == limit && pendingRead == pending.length()) {
+                return i + 1;
+            }
+        }
+        return len;
+    }
+
+    private void addToPreview(char c) {
+        if (preview.length() < PREVIEW_LENGTH) {
+            preview.append(c);
+        } else if (c > ' ') {
+            truncated = true;
+        }
+    }
+
+    /**
+     * @return Whether the statement read so far holds no characters besides whitespace
+     */
+    boolean isBlank() {
+        return last < 0;
+    }
+
+    /**
+     * @return The last character read that is not whitespace, or -1 if there is none
+     */
+    int getLastChar() {
+        return last;
+    }
+
+    /**
+     * @return The start of the statement read so far, ending in "..." if it is cut short
+     */
+    String getPreview() {
+        int end = preview.length();
+        while (end > 0 && preview.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return truncated ? preview.substring(0, end) + "..." : preview.substring(0, end);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -10,23 +10,61 @@ import java.util.List;
 public class SyntaxErrorListener extends BaseErrorListener {
     private final List<String> errors = new ArrayList<>();
 
+    // Errors kept; later ones are only counted
+    private final int maxErrors;
+    private int droppedErrors;
+
+    public SyntaxErrorListener() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxErrors Errors kept until the next clear; the rest are summarized as a count
+     */
+    public SyntaxErrorListener(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
     @Override
     public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol,
                             int line, int charPositionInLine,
                             String msg, RecognitionException e) {
-        String errorMsg = String.format("line %d:%d %s", line, charPositionInLine, msg);
-        errors.add(errorMsg);
+        if (errors.size() < maxErrors) {
+            errors.add(format(line, charPositionInLine, msg));
+        } else {
+            droppedErrors++;
+        }
+    }
+
+    /**
+     * @return An error message in the "line L:C message" form used for all syntax errors
+     */
+    public static String format(int line, int charPositionInLine, String msg) {
+        return String.format("line %d:%d %s", line, charPositionInLine, msg);
     }
 
     public boolean hasErrors() {
         return !errors.isEmpty();
     }
 
+    /**
+     * @return Number of errors reported since the last clear, including any not kept
+     */
+    public int getErrorCount() {
+        return errors.size() + droppedErrors;
+    }
+
     public String getErrorMessages() {
-        return String.join("; ", errors);
+        String messages = String.join("; ", errors);
+        return droppedErrors > 0 ? messages + "; " + droppedErrors + " more syntax errors" : messages;
     }
 
     public List<String> getErrors() {
         return errors;
     }
+
+    public void clear() {
+        errors.clear();
+        droppedErrors = 0;
+    }
 }
\ No newline at end of file
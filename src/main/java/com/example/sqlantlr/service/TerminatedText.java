@@ -0,0 +1,38 @@
+package com.example.sqlantlr.service;
+
+/**
+ * A statement followed by a ';' it does not have in its source, such as one ended by a delimiter set
+ * with DELIMITER, which the parser expects to end with ';'. Like {@link TextSlice}, it is a view:
+ * the statement's characters are only copied by toString().
+ */
+public final class TerminatedText implements CharSequence {
+
+    private final CharSequence statement;
+
+    public TerminatedText(CharSequence statement) {
+        this.statement = statement;
+    }
+
+    @Override
+    public int length() {
+        return statement.length() + 1;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return index == statement.length() ? ';' : statement.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (end <= statement.length()) {
+            return statement.subSequence(start, end);
+        }
+        return new TextSlice(this, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return statement + ";";
+    }
+}
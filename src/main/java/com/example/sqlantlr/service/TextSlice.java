@@ -0,0 +1,81 @@
+package com.example.sqlantlr.service;
+
+/**
+ * A view of a range of a larger text, such as one statement of an uploaded script.
+ * Unlike String.subSequence, creating or slicing a view never copies the characters;
+ * only toString() does.
+ */
+public final class TextSlice implements CharSequence {
+
+    private final CharSequence source;
+    private final int offset;
+    private final int length;
+
+    public TextSlice(CharSequence source, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > source.length()) {
+            throw new IndexOutOfBoundsException("Range " + offset + "+" + length + " outside text of length " + source.length());
+        }
+        // Views of views point straight at the underlying text
+        if (source instanceof TextSlice slice) {
+            this.source = slice.source;
+            this.offset = slice.offset + offset;
+        } else {
+            this.source = source;
+            this.offset = offset;
+        }
+        this.length = length;
+    }
+
+    /**
+     * @return A view of source[start, end) with leading and trailing whitespace removed, as String.trim() does
+     */
+    public static TextSlice trimmed(CharSequence source, int start, int end) {
+        while (start < end && source.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && source.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return new TextSlice(source, start, end - start);
+    }
+
+    /**
+     * @return The text this is a view of; never itself a TextSlice
+     */
+    public CharSequence getSource() {
+        return source;
+    }
+
+    /**
+     * @return Start of this view in its source
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return source.charAt(offset + index);
+    }
+
+    @Override
+    public TextSlice subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") outside slice of length " + length);
+        }
+        return new TextSlice(source, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return source.subSequence(offset, offset + length).toString();
+    }
+}
@@ -0,0 +1,195 @@
+-- Warm-up corpus: representative statements for every sqlStatement alternative.
+-- Parsed once at startup to fill the shared lexer/parser DFA caches.
+
+-- DDL: create
+CREATE DATABASE IF NOT EXISTS shop CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci;
+CREATE EVENT IF NOT EXISTS purge_sessions ON SCHEDULE EVERY 1 HOUR DO
+BEGIN
+    DELETE FROM sessions WHERE expires_at < NOW();
+END;
+CREATE UNIQUE INDEX idx_users_email ON users (email);
+CREATE INDEX idx_orders_user ON orders (user_id, created_at DESC) USING BTREE;
+CREATE LOGFILE GROUP lg1 ADD UNDOFILE 'undo.dat' INITIAL_SIZE = 16M ENGINE = NDB;
+CREATE PROCEDURE get_user(IN p_id INT)
+BEGIN
+    SELECT * FROM users WHERE id = p_id;
+END;
+CREATE FUNCTION add_one(x INT) RETURNS INT DETERMINISTIC
+BEGIN
+    RETURN x + 1;
+END;
+CREATE PROCEDURE archive_orders(IN p_days INT)
+BEGIN
+    DECLARE cutoff DATETIME DEFAULT NOW() - INTERVAL p_days DAY;
+    INSERT INTO orders_archive SELECT * FROM orders WHERE created_at < cutoff;
+    DELETE FROM orders WHERE created_at < cutoff;
+END;
+CREATE SERVER remote_srv FOREIGN DATA WRAPPER mysql OPTIONS (HOST '10.0.0.1', DATABASE 'db', USER 'u', PASSWORD 'p', PORT 3306);
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+    email VARCHAR(255) NOT NULL,
+    name VARCHAR(100) DEFAULT NULL,
+    balance DECIMAL(10, 2) NOT NULL DEFAULT 0.00,
+    active TINYINT(1) NOT NULL DEFAULT 1,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_email (email),
+    KEY idx_name (name)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+CREATE TABLE orders (
+    id INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT UNSIGNED NOT NULL,
+    total DECIMAL(12, 2),
+    status ENUM('new', 'paid', 'shipped') NOT NULL DEFAULT 'new',
+    notes TEXT,
+    CONSTRAINT fk_orders_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+CREATE TEMPORARY TABLE tmp_ids (id INT);
+CREATE TABLE users_copy LIKE users;
+CREATE TABLE paid_orders AS SELECT * FROM orders WHERE status = 'paid';
+CREATE TABLESPACE ts1 ADD DATAFILE 'ts1.ibd' ENGINE = InnoDB;
+CREATE TABLESPACE ts2 ADD DATAFILE 'ts2.dat' USE LOGFILE GROUP lg1 ENGINE = NDB;
+CREATE TRIGGER trg_orders_bi BEFORE INSERT ON orders FOR EACH ROW
+BEGIN
+    SET NEW.total = IFNULL(NEW.total, 0);
+END;
+CREATE OR REPLACE VIEW active_users AS SELECT id, email FROM users WHERE active = 1;
+CREATE ROLE IF NOT EXISTS reporting;
+CREATE SEQUENCE seq_orders START WITH 1 INCREMENT BY 1;
+
+-- DDL: alter
+ALTER DATABASE shop CHARACTER SET utf8mb4;
+ALTER EVENT purge_sessions DISABLE;
+ALTER FUNCTION add_one COMMENT 'increment';
+ALTER INSTANCE ROTATE INNODB MASTER KEY;
+ALTER LOGFILE GROUP lg1 ADD UNDOFILE 'undo2.dat' ENGINE = NDB;
+ALTER PROCEDURE get_user COMMENT 'lookup';
+ALTER SERVER remote_srv OPTIONS (USER 'u2');
+ALTER TABLE users ADD COLUMN phone VARCHAR(32) NULL AFTER email;
+ALTER TABLE users MODIFY COLUMN name VARCHAR(200) NOT NULL, DROP COLUMN phone;
+ALTER TABLE orders ADD INDEX idx_status (status), RENAME COLUMN notes TO remarks;
+ALTER TABLESPACE ts1 ADD DATAFILE 'ts1b.dat' ENGINE = NDB;
+ALTER VIEW active_users AS SELECT id, email, name FROM users WHERE active = 1;
+ALTER SEQUENCE seq_orders RESTART WITH 100;
+
+-- DDL: drop, rename, truncate, roles
+DROP DATABASE IF EXISTS old_shop;
+DROP EVENT IF EXISTS purge_sessions;
+DROP INDEX idx_status ON orders;
+DROP LOGFILE GROUP lg1 ENGINE = NDB;
+DROP PROCEDURE IF EXISTS get_user;
+DROP FUNCTION IF EXISTS add_one;
+DROP SERVER IF EXISTS remote_srv;
+DROP TABLE IF EXISTS tmp_ids, users_copy;
+DROP TABLESPACE ts1;
+DROP TRIGGER IF EXISTS trg_orders_bi;
+DROP VIEW IF EXISTS active_users;
+DROP ROLE reporting;
+DROP SEQUENCE IF EXISTS seq_orders;
+SET ROLE reporting;
+RENAME TABLE orders TO orders_old, orders_new TO orders;
+TRUNCATE TABLE sessions;
+
+-- DML
+SELECT 1;
+SELECT * FROM users;
+SELECT id, email AS mail FROM users WHERE id = 42 AND active = 1 OR name LIKE 'a%';
+SELECT DISTINCT u.id, COUNT(*) AS cnt, SUM(o.total) FROM users u JOIN orders o ON o.user_id = u.id LEFT JOIN payments p ON p.order_id = o.id
+    WHERE o.created_at BETWEEN '2024-01-01' AND '2024-12-31' AND o.status IN ('paid', 'shipped')
+    GROUP BY u.id HAVING COUNT(*) > 1 ORDER BY cnt DESC LIMIT 10 OFFSET 20;
+SELECT CASE WHEN total > 100 THEN 'big' ELSE 'small' END, COALESCE(notes, ''), CAST(total AS CHAR), NOW() FROM orders;
+SELECT * FROM users WHERE id IN (SELECT user_id FROM orders WHERE total > 10) AND EXISTS (SELECT 1 FROM payments);
+SELECT a.* FROM (SELECT id FROM users) AS a UNION ALL SELECT id FROM orders;
+SELECT id, ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY created_at) AS rn FROM orders;
+SELECT * FROM users FOR UPDATE;
+INSERT INTO users (email, name) VALUES ('a@example.com', 'A'), ('b@example.com', NULL);
+INSERT INTO orders VALUES (1, 1, 10.50, 'new', 'x'), (2, 1, -3, 'paid', NULL);
+INSERT IGNORE INTO tmp_ids SELECT id FROM users;
+INSERT INTO users SET email = 'c@example.com', name = 'C' ON DUPLICATE KEY UPDATE name = VALUES(name);
+UPDATE users SET name = 'B', balance = balance + 1 WHERE id = 2;
+UPDATE orders o JOIN users u ON u.id = o.user_id SET o.status = 'shipped' WHERE u.active = 0;
+DELETE FROM sessions WHERE expires_at < NOW() LIMIT 1000;
+DELETE o FROM orders o JOIN users u ON u.id = o.user_id WHERE u.active = 0;
+REPLACE INTO tmp_ids (id) VALUES (1), (2);
+CALL get_user(1);
+LOAD DATA LOCAL INFILE '/tmp/users.csv' INTO TABLE users FIELDS TERMINATED BY ',' LINES TERMINATED BY '\n' IGNORE 1 LINES;
+LOAD XML LOCAL INFILE '/tmp/users.xml' INTO TABLE users ROWS IDENTIFIED BY <'user'>;
+DO SLEEP(0);
+HANDLER users OPEN;
+HANDLER users READ FIRST;
+HANDLER users CLOSE;
+VALUES (1, 2), (3, 4);
+
+-- Transactions
+START TRANSACTION;
+BEGIN WORK;
+COMMIT;
+ROLLBACK;
+SAVEPOINT sp1;
+ROLLBACK TO SAVEPOINT sp1;
+RELEASE SAVEPOINT sp1;
+LOCK TABLES users READ, orders WRITE;
+UNLOCK TABLES;
+
+-- Replication
+CHANGE MASTER TO MASTER_HOST = '10.0.0.2', MASTER_PORT = 3306;
+CHANGE REPLICATION FILTER REPLICATE_DO_DB = (shop);
+PURGE BINARY LOGS BEFORE '2024-01-01 00:00:00';
+RESET MASTER;
+RESET SLAVE;
+START SLAVE;
+STOP SLAVE;
+START GROUP_REPLICATION;
+STOP GROUP_REPLICATION;
+XA START 'xid1';
+XA END 'xid1';
+XA PREPARE 'xid1';
+XA COMMIT 'xid1';
+XA ROLLBACK 'xid1';
+XA RECOVER;
+
+-- Prepared statements
+PREPARE stmt FROM 'SELECT * FROM users WHERE id = ?';
+EXECUTE stmt USING @id;
+DEALLOCATE PREPARE stmt;
+
+-- Administration
+ALTER USER 'app'@'%' IDENTIFIED BY 'secret';
+CREATE USER IF NOT EXISTS 'app'@'%' IDENTIFIED BY 'secret';
+DROP USER IF EXISTS 'old'@'localhost';
+GRANT SELECT, INSERT ON shop.* TO 'app'@'%';
+GRANT PROXY ON 'root'@'localhost' TO 'app'@'%';
+RENAME USER 'app'@'%' TO 'svc'@'%';
+REVOKE INSERT ON shop.* FROM 'svc'@'%';
+REVOKE PROXY ON 'root'@'localhost' FROM 'svc'@'%';
+ANALYZE TABLE users;
+CHECK TABLE users;
+CHECKSUM TABLE users;
+OPTIMIZE TABLE orders;
+REPAIR TABLE orders;
+CREATE AGGREGATE FUNCTION metaphon RETURNS STRING SONAME 'udf_example.so';
+INSTALL PLUGIN example SONAME 'ha_example.so';
+UNINSTALL PLUGIN example;
+SET @id = 1;
+SET NAMES utf8mb4;
+SET SESSION sql_mode = 'STRICT_TRANS_TABLES';
+SHOW TABLES;
+SHOW CREATE TABLE users;
+SHOW VARIABLES LIKE 'max%';
+BINLOG 'base64data';
+CACHE INDEX users IN hot_cache;
+FLUSH TABLES;
+KILL 12345;
+LOAD INDEX INTO CACHE users;
+RESET QUERY CACHE;
+SHUTDOWN;
+EXPLAIN SELECT * FROM users WHERE id = 1;
+
+-- Utility
+DESCRIBE users;
+DESC orders status;
+HELP 'contents';
+USE shop;
+SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'failure';
+RESIGNAL SQLSTATE '45000';
+GET DIAGNOSTICS @cnt = NUMBER;
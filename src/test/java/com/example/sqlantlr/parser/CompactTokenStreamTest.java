@@ -0,0 +1,34 @@
+package com.example.sqlantlr.parser;
+
+import com.sql.validator.MariaDBLexer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompactTokenStreamTest {
+
+    @Test
+    void textOfRangesMatchesCommonTokenStream() {
+        for (String text : List.of("UPDATE t SET; -- c;", "  /* lead */ SELECT (1 /* a; */ ;\n\n# end", "SELECT 1", "", "  \n")) {
+            CompactTokenStream compact = new CompactTokenStream(new ValidationLexer(new CharSequenceCharStream(text)));
+            compact.fill();
+            CommonTokenStream common = new CommonTokenStream(new MariaDBLexer(CharStreams.fromString(text)));
+            common.fill();
+            List<Token> visible = common.getTokens().stream().filter(t -> t.getChannel() == Token.DEFAULT_CHANNEL).toList();
+
+            assertEquals(common.getText(), compact.getText(), text);
+            for (int start = 0; start < visible.size(); start++) {
+                for (int stop = start; stop < visible.size(); stop++) {
+                    assertEquals(common.getText(visible.get(start), visible.get(stop)),
+                            compact.getText(Interval.of(start, stop)), text + " [" + start + ", " + stop + "]");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.sqlantlr.parser;
+
+import com.sql.validator.MariaDBLexer;
+import com.sql.validator.MariaDBParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DfaSnapshotTest {
+
+    private static final String SCRIPT = "SELECT a, COUNT(*) FROM t WHERE b IN (1, 2) GROUP BY a;\n"
+            + "INSERT INTO t (a, b) VALUES (1, 'x'), (2, NULL);\n"
+            + "UPDATE t SET b = b + 1 WHERE a = 1 ORDER BY b LIMIT 10;\n"
+            + "CREATE TABLE u (id INT PRIMARY KEY, name VARCHAR(20) NOT NULL);\n";
+
+    @TempDir
+    Path directory;
+
+    private final MariaDBParser parser = parser("");
+    private final MariaDBLexer lexer = (MariaDBLexer) ((CommonTokenStream) parser.getTokenStream()).getTokenSource();
+
+    @Test
+    void savedStatesAreLoadedIntoClearedDfas() throws IOException {
+        parse(SCRIPT);
+        int[] learned = stateCounts();
+        Path file = directory.resolve("dfa.snapshot");
+
+        int written = DfaSnapshot.save(file, lexer, parser);
+        clear();
+        int loaded = DfaSnapshot.load(file, lexer, parser);
+
+        assertTrue(written > 0);
+        assertEquals(written, loaded);
+        assertArrayEquals(learned, stateCounts());
+        // The loaded states predict as the learned ones did, so parsing again learns nothing more
+        parse(SCRIPT);
+        assertArrayEquals(learned, stateCounts());
+    }
+
+    @Test
+    void snapshotOfOtherGrammarsIsIgnored() throws IOException {
+        clear();
+        Path file = directory.resolve("other.snapshot");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(0x44464153);
+            out.writeUTF(DfaSnapshot.fingerprint(new MariaDBLexer(CharStreams.fromString(""))));
+            out.writeInt(1);
+        }
+
+        assertEquals(-1, DfaSnapshot.load(file, lexer, parser));
+        assertEquals(0, total(stateCounts()));
+    }
+
+    @Test
+    void fileThatIsNotASnapshotIsRejected() throws IOException {
+        Path file = directory.resolve("not.snapshot");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeUTF("SELECT 1;");
+        }
+
+        assertThrows(IOException.class, () -> DfaSnapshot.load(file, lexer, parser));
+    }
+
+    private static MariaDBParser parser(String text) {
+        return new MariaDBParser(new CommonTokenStream(new MariaDBLexer(CharStreams.fromString(text))));
+    }
+
+    private static void parse(String text) {
+        MariaDBParser parser = parser(text);
+        parser.root();
+        assertEquals(0, parser.getNumberOfSyntaxErrors());
+    }
+
+    private void clear() {
+        parser.getInterpreter().clearDFA();
+        lexer.getInterpreter().clearDFA();
+    }
+
+    private int[] stateCounts() {
+        DFA[] lexerDfas = ((LexerATNSimulator) lexer.getInterpreter()).decisionToDFA;
+        DFA[] parserDfas = parser.getInterpreter().decisionToDFA;
+        int[] counts = new int[lexerDfas.length + parserDfas.length];
+        for (int i = 0; i < lexerDfas.length; i++) {
+            counts[i] = lexerDfas[i].states.size();
+        }
+        for (int i = 0; i < parserDfas.length; i++) {
+            counts[lexerDfas.length + i] = parserDfas[i].states.size();
+        }
+        return counts;
+    }
+
+    private static int total(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.sqlantlr.parser;
+
+import com.sql.validator.MariaDBLexer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks FastValidationLexer token for token against the generated lexer
+ */
+class FastValidationLexerTest {
+
+    // Pieces of SQL the fuzzed statements are built from, meant to hit each of the fast lexer's paths
+    private static final String[] FRAGMENTS = {
+            "SELECT", "select", "FrOm", "WHERE", "t", "t1", "_x", "$y", "a$b", "1e", "9abc", "x.y", "`quoted id`", "`a``b`",
+            "'str'", "'it''s'", "'esc\\'aped'", "\"dq\"", "\"a\"\"b\"", "N'nat'", "_utf8mb4'x'", "X'0AFF'", "x'0a'", "B'101'", "0x1F",
+            "0b11", "12", "1.5", ".5", "1.", "3e10", "2.5E-3", "@var", "@@global.x", "@`q`", "@'s'", ":=", "<=>", "<>", "!=", ">=",
+            "<=", "<<", ">>", "&&", "||", "->", "->>", "(", ")", ",", ";", "*", "+", "-", "/", "%", "=", "<", ">", "!", "~", "^", "&",
+            "|", "?", "--", "-- comment", "#hash", "/* block */", "/*! 40101 SET x=1 */", "/*+ hint */", "\n", " ", "\t", "\r\n",
+            "é", "日本", " ", "END", "BEGIN", "IF", "CASE", "DELIMITER", "INT", "VARCHAR(10)", "NOT NULL", "DEFAULT", "NOW()",
+            "CURRENT_TIMESTAMP", "\\", "'unclosed", "\"unclosed", "`unclosed", "/* unclosed"
+    };
+
+    @Test
+    void literalsLexAsTheGeneratedLexerLexesThem() {
+        int literals = 0;
+        for (int type = 1; type <= MariaDBLexer.VOCABULARY.getMaxTokenType(); type++) {
+            String literal = MariaDBLexer.VOCABULARY.getLiteralName(type);
+            if (literal == null) {
+                continue;
+            }
+            // Keywords, which go through the keyword table, and symbols
+            String word = literal.substring(1, literal.length() - 1);
+            literals++;
+            assertSameTokens(word);
+            assertSameTokens(word.toLowerCase(Locale.ROOT));
+            assertSameTokens(mixedCase(word));
+            assertSameTokens(word + "_suffix");
+            assertSameTokens("x " + word + "(1);");
+        }
+        assertTrue(literals > 500, "only " + literals + " literal names");
+    }
+
+    @Test
+    void warmupCorpusLexesAsTheGeneratedLexerLexesIt() throws IOException {
+        try (InputStream corpus = getClass().getResourceAsStream("/warmup/corpus.sql")) {
+            assertNotNull(corpus);
+            assertSameTokens(new String(corpus.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void fuzzedTextLexesAsTheGeneratedLexerLexesIt() {
+        Random random = new Random(20240601);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder text = new StringBuilder();
+            int pieces = 1 + random.nextInt(30);
+            for (int p = 0; p < pieces; p++) {
+                if (random.nextInt(10) == 0) {
+                    // Any character, including ones neither lexer recognizes
+                    text.append((char) random.nextInt(0x3000));
+                } else {
+                    text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                }
+                if (random.nextBoolean()) {
+                    text.append(' ');
+                }
+            }
+            assertSameTokens(text.toString());
+        }
+    }
+
+    private static void assertSameTokens(String text) {
+        LexerDifferential.Report report = LexerDifferential.compare(text);
+        assertTrue(report.isMatch(), () -> "Lexers differ on <" + text + ">: " + report.getMismatch());
+    }
+
+    private static String mixedCase(String word) {
+        StringBuilder mixed = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            mixed.append(i % 2 == 0 ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return mixed.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.sqlantlr.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParseBudgetTest {
+
+    @Test
+    void tokensAreCountedOncePerPosition() {
+        ParseBudget.Meter meter = new ParseBudget(3, 0, 0).newMeter();
+        meter.start();
+        for (int index : new int[] {0, 1, 2, 0, 1, 2, 1}) {
+            meter.chargeToken(index);
+        }
+
+        ParseBudgetExceededException e = assertThrows(ParseBudgetExceededException.class, () -> meter.chargeToken(3));
+        assertEquals(ParseBudget.Limit.TOKENS, e.getLimit());
+    }
+
+    @Test
+    void streamedTextAllowsMorePredictionSteps() {
+        ParseBudget.Meter meter = new ParseBudget(0, 10, 0).newMeter();
+        meter.start();
+        chargeSteps(meter, 10);
+        meter.chargeRead((1 << 20) - 1);
+        assertThrows(ParseBudgetExceededException.class, meter::chargePredictionStep);
+
+        meter.start();
+        chargeSteps(meter, 10);
+        meter.chargeRead(1 << 20);
+        chargeSteps(meter, 10);
+        assertThrows(ParseBudgetExceededException.class, meter::chargePredictionStep);
+    }
+
+    @Test
+    void readingChecksTheTimeLimit() throws InterruptedException {
+        ParseBudget.Meter meter = new ParseBudget(0, 0, 1).newMeter();
+        meter.start();
+        Thread.sleep(5);
+
+        ParseBudgetExceededException e = assertThrows(ParseBudgetExceededException.class, () -> meter.chargeRead(1));
+        assertEquals(ParseBudget.Limit.TIME, e.getLimit());
+    }
+
+    @Test
+    void chargesOutsideStartAndStopAreIgnored() {
+        ParseBudget.Meter meter = new ParseBudget(1, 1, 0).newMeter();
+        chargeSteps(meter, 5);
+        meter.start();
+        meter.stop();
+        meter.chargeToken(5);
+        meter.chargeToken(6);
+    }
+
+    private static void chargeSteps(ParseBudget.Meter meter, int steps) {
+        for (int i = 0; i < steps; i++) {
+            meter.chargePredictionStep();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.sqlantlr.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatementSplitterTest {
+
+    @Test
+    void beginAndEndAsNamesOpenNoBlock() {
+        assertEquals(List.of("CREATE TABLE events (id INT, begin DATETIME);", "INSERT INTO events VALUES (1, NOW());",
+                        "DROP TABLEE events;"),
+                split("CREATE TABLE events (id INT, begin DATETIME);\nINSERT INTO events VALUES (1, NOW());\nDROP TABLEE events;"));
+        assertEquals(List.of("SELECT begin FROM t;", "SELEC x;"), split("SELECT begin FROM t; SELEC x;"));
+        assertEquals(List.of("BEGIN;", "SELECT begin, end FROM t WHERE t.begin < end;", "COMMIT;"),
+                split("BEGIN; SELECT begin, end FROM t WHERE t.begin < end; COMMIT;"));
+        assertEquals(List.of("XA BEGIN 'x';", "SELECT 1;"), split("XA BEGIN 'x'; SELECT 1;"));
+    }
+
+    @Test
+    void routineBodiesStayInOneStatement() {
+        for (String routine : List.of(
+                "CREATE PROCEDURE p(a INT) BEGIN SELECT 1; IF a THEN SELECT 2; END IF; END;",
+                "CREATE DEFINER = root PROCEDURE p(begin INT) COMMENT 'c' BEGIN SELECT begin; END;",
+                "CREATE FUNCTION f() RETURNS INT DETERMINISTIC BEGIN DECLARE x INT; SET x = 1; RETURN x; END;",
+                "CREATE FUNCTION f() RETURNS DECIMAL(10,2) BEGIN RETURN 1; END;",
+                "CREATE FUNCTION f() RETURNS VARCHAR(5) CHARSET utf8mb4 BEGIN RETURN 'a'; END;",
+                "CREATE TRIGGER tr BEFORE INSERT ON t FOR EACH ROW BEGIN SET NEW.a = 1; SET NEW.b = 2; END;",
+                "CREATE EVENT e ON SCHEDULE EVERY 1 DAY DO BEGIN DELETE FROM t; SELECT 1; END;",
+                "CREATE PROCEDURE p() BEGIN REPEAT SET i = i + 1; UNTIL i > 5 END REPEAT; SELECT end FROM t; END;",
+                "CREATE PROCEDURE p() lbl: BEGIN SELECT CASE WHEN a THEN 1 ELSE 2 END FROM t; END lbl;",
+                "BEGIN NOT ATOMIC SELECT 1; SELECT 2; END;")) {
+            assertEquals(List.of(routine, "SELECT 3;"), split(routine + "\nSELECT 3;"), routine);
+        }
+    }
+
+    @Test
+    void delimiterEndsStatementsWhateverTheDepth() {
+        assertEquals(List.of("CREATE PROCEDURE p() BEGIN SELECT 1; END$$", "SELECT 2;"),
+                split("DELIMITER $$\nCREATE PROCEDURE p() BEGIN SELECT 1; END$$\nDELIMITER ;\nSELECT 2;"));
+    }
+
+    /**
+     * @return The text of each statement, from its first token to the ';' or delimiter ending it
+     */
+    private static List<String> split(String script) {
+        ValidationLexer lexer = new ValidationLexer(new CharSequenceCharStream(script));
+        DelimiterTokenSource delimiters = new DelimiterTokenSource(lexer);
+        CompactTokenStream tokens = new CompactTokenStream(delimiters);
+        tokens.fill();
+        List<String> statements = new ArrayList<>();
+        int start = 0;
+        for (int end : StatementSplitter.split(tokens, delimiters)) {
+            statements.add(script.substring(tokens.getStartIndex(start), tokens.get(end - 1).getStopIndex() + 1));
+            start = end;
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.sqlantlr.service;
+
+import com.sql.validator.MariaDBLexer;
+import com.sql.validator.MariaDBParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DfaSnapshotServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final MariaDBLexer lexer = new MariaDBLexer(CharStreams.fromString(""));
+    private final MariaDBParser parser = new MariaDBParser(new CommonTokenStream(lexer));
+
+    @Test
+    void savedSnapshotIsLoadedAtStartup() throws IOException {
+        new SqlValidatorService().validateQueries(List.of("SELECT a FROM t WHERE b = 1", "DELETE FROM t WHERE a > 2"));
+        DfaSnapshotService service = new DfaSnapshotService(directory.resolve("dfa/parser.snapshot").toString(), true);
+
+        int written = service.save();
+        clear();
+        service.load();
+
+        assertTrue(written > 0);
+        assertEquals(written, parserStates() + lexerStates());
+    }
+
+    @Test
+    void snapshotOfOtherGrammarsLeavesTheCachesCold() throws IOException {
+        Path file = directory.resolve("other.snapshot");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(0x44464153);
+            out.writeUTF("0".repeat(64));
+        }
+        clear();
+
+        new DfaSnapshotService(file.toString(), false).load();
+
+        assertEquals(0, parserStates() + lexerStates());
+    }
+
+    private void clear() {
+        parser.getInterpreter().clearDFA();
+        lexer.getInterpreter().clearDFA();
+    }
+
+    private int parserStates() {
+        return count(parser.getInterpreter().decisionToDFA);
+    }
+
+    private int lexerStates() {
+        return count(lexer.getInterpreter().decisionToDFA);
+    }
+
+    private static int count(DFA[] dfas) {
+        int states = 0;
+        for (DFA dfa : dfas) {
+            states += dfa.states.size();
+        }
+        return states;
+    }
+}
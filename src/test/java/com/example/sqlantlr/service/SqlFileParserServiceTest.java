@@ -0,0 +1,113 @@
+package com.example.sqlantlr.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlFileParserServiceTest {
+
+    private static final int LIMIT = 10_000;
+
+    private final SqlFileParserService parser = new SqlFileParserService(1 << 22, LIMIT, 0);
+
+    @Test
+    void readsZipEntriesUnderTheLimit() throws IOException {
+        byte[] archive = zip(Map.of("a.sql", "SELECT 1;\n", "b.sql.gz", "SELECT 2;\n", "README.md", "not sql"));
+
+        Map<String, String> scripts = parser.readArchive(new ByteArrayInputStream(archive));
+
+        assertEquals(Map.of("a.sql", "SELECT 1;\n", "b.sql.gz", "SELECT 2;\n"), scripts);
+    }
+
+    @Test
+    void rejectsZipEntryInflatingPastTheLimit() {
+        // Compresses to a few dozen bytes
+        byte[] archive = zip(Map.of("bomb.sql", "-".repeat(LIMIT + 1)));
+
+        IOException e = assertThrows(IOException.class, () -> parser.readArchive(new ByteArrayInputStream(archive)));
+        assertTrue(e.getMessage().contains("limit"), e.getMessage());
+    }
+
+    @Test
+    void rejectsGzipEntryInsideZipInflatingPastTheLimit() {
+        byte[] archive = zip(Map.of("bomb.sql.gz", "-".repeat(LIMIT + 1)));
+
+        assertThrows(IOException.class, () -> parser.readArchive(new ByteArrayInputStream(archive)));
+    }
+
+    @Test
+    void rejectsZipWhoseEntriesTogetherInflatePastTheLimit() {
+        String script = "-".repeat(LIMIT / 2 + 1);
+        byte[] archive = zip(Map.of("a.sql", script, "b.sql", script));
+
+        assertThrows(IOException.class, () -> parser.readArchive(new ByteArrayInputStream(archive)));
+    }
+
+    @Test
+    void rejectsGzipInflatingPastTheLimit() {
+        byte[] script = gzip("SELECT 1;\n".repeat(LIMIT));
+
+        assertThrows(IOException.class, () -> parser.parse(new ByteArrayInputStream(script)));
+    }
+
+    @Test
+    void parsesGzipUnderTheLimit() throws IOException {
+        List<CharSequence> queries = parser.parse(new ByteArrayInputStream(gzip("SELECT 1;\nSELECT 2;\n")));
+
+        assertEquals(List.of("SELECT 1;", "SELECT 2;"), queries.stream().map(CharSequence::toString).toList());
+    }
+
+    @Test
+    void leavesPlainScriptsUnlimited() throws IOException {
+        InputStream script = new ByteArrayInputStream("SELECT 1;\n".repeat(LIMIT).getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(LIMIT, parser.parse(script).size());
+    }
+
+    @Test
+    void streamsGzipPastTheLimit() throws IOException {
+        byte[] script = gzip("SELECT 1;\n".repeat(LIMIT));
+
+        try (Stream<StatementIterator.Statement> statements = parser.stream(new ByteArrayInputStream(script))) {
+            assertEquals(LIMIT, statements.count());
+        }
+    }
+
+    private static byte[] zip(Map<String, String> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getKey().endsWith(".gz") ? gzip(entry.getValue()) : entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gzip(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
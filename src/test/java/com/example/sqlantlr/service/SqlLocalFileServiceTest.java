@@ -0,0 +1,62 @@
+package com.example.sqlantlr.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SqlLocalFileServiceTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void pathsOutsideTheBaseDirectoriesAreDeniedWhetherOrNotTheyExist() throws IOException {
+        Path base = Files.createDirectory(root.resolve("base"));
+        Path outside = Files.writeString(root.resolve("outside.sql"), "SELECT 1;");
+        SqlLocalFileService service = service(base + "," + root.resolve("missing"));
+
+        assertThrows(AccessDeniedException.class, () -> service.open(outside));
+        assertThrows(AccessDeniedException.class, () -> service.open(root.resolve("absent.sql")));
+        assertThrows(AccessDeniedException.class, () -> service.open(base.resolve("../absent.sql")));
+        assertThrows(AccessDeniedException.class, () -> service.open(base.resolve("../outside.sql")));
+    }
+
+    @Test
+    void symbolicLinksOutOfABaseDirectoryAreDenied() throws IOException {
+        Path base = Files.createDirectory(root.resolve("base"));
+        Path outside = Files.writeString(root.resolve("outside.sql"), "SELECT 1;");
+        Path link = Files.createSymbolicLink(base.resolve("link.sql"), outside);
+        SqlLocalFileService service = service(base.toString());
+
+        assertThrows(AccessDeniedException.class, () -> service.open(link));
+    }
+
+    @Test
+    void filesUnderABaseDirectoryAreRead() throws IOException {
+        Path base = Files.createDirectory(root.resolve("base"));
+        Files.writeString(base.resolve("a.sql"), "SELECT 1;");
+        SqlLocalFileService service = service(base.toString());
+
+        assertEquals("SELECT 1;", service.open(base.resolve("a.sql")).toString());
+        assertThrows(NoSuchFileException.class, () -> service.open(base.resolve("absent.sql")));
+    }
+
+    @Test
+    void noBaseDirectoryDeniesEveryPath() {
+        SqlLocalFileService service = service(root.resolve("missing").toString());
+
+        assertThrows(AccessDeniedException.class, () -> service.open(root.resolve("absent.sql")));
+    }
+
+    private static SqlLocalFileService service(String baseDirectories) {
+        return new SqlLocalFileService(new SqlFileParserService(), new SqlValidatorService(), baseDirectories);
+    }
+}
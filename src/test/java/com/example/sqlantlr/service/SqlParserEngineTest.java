@@ -0,0 +1,116 @@
+package com.example.sqlantlr.service;
+
+import com.example.sqlantlr.parser.ParseBudget;
+import com.example.sqlantlr.parser.ParseBudgetExceededException;
+import com.example.sqlantlr.parser.ValuesSampling;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlParserEngineTest {
+
+    // About 4000 tokens, of which sampling leaves the parser about 400
+    private static final String INSERT = "INSERT INTO t VALUES " + "(1, 2),".repeat(799) + "(1, 2);";
+
+    @Test
+    void tokenLimitCountsTuplesDroppedBySampling() {
+        SqlParserEngine engine = engine(new ParseBudget(1000, 0, 0), new ValuesSampling(ValuesSampling.Mode.STRICT, 10));
+
+        ParseBudgetExceededException e = assertThrows(ParseBudgetExceededException.class, () -> engine.parse(INSERT));
+        assertEquals(ParseBudget.Limit.TOKENS, e.getLimit());
+    }
+
+    @Test
+    void tokenLimitCountsStatementsRejectedForUnrecognizedInput() {
+        SqlParserEngine engine = engine(new ParseBudget(1000, 0, 0), ValuesSampling.OFF);
+
+        assertThrows(ParseBudgetExceededException.class, () -> engine.parse(INSERT.replace(";", " {;")));
+    }
+
+    @Test
+    void statementUnderTokenLimitIsParsed() {
+        SqlParserEngine engine = engine(new ParseBudget(5000, 0, 0), ValuesSampling.OFF);
+
+        assertNull(engine.parse(INSERT));
+        // The meter starts over for each statement
+        assertNull(engine.parse(INSERT));
+    }
+
+    @Test
+    void scriptStatementsAfterBeginAsNameAreParsed() {
+        SqlParserEngine engine = engine(ParseBudget.UNLIMITED, ValuesSampling.OFF);
+
+        List<SqlParserEngine.ScriptStatement> statements = engine.parseScript(
+                "CREATE TABLE events (id INT, begin DATETIME);\nINSERT INTO events VALUES (1, NOW());\nDROP TABLEE events;");
+        assertEquals(List.of(1, 2, 3), statements.stream().map(SqlParserEngine.ScriptStatement::getLine).toList());
+        assertNull(statements.get(1).getErrors());
+        assertTrue(statements.get(2).getErrors().contains("TABLEE"), statements.get(2).getErrors());
+
+        statements = engine.parseScript("SELECT begin FROM t; SELEC x;");
+        assertEquals(2, statements.size());
+        assertNull(statements.get(0).getErrors());
+        assertTrue(statements.get(1).getErrors().contains("SELEC"), statements.get(1).getErrors());
+    }
+
+    @Test
+    void scriptStatementEndingBeforeTheSplittersEndIsFollowedByTheRest() {
+        SqlParserEngine engine = engine(ParseBudget.UNLIMITED, ValuesSampling.OFF);
+
+        // The splitter takes the alias for a routine body, so its statement runs to the end of the script
+        List<SqlParserEngine.ScriptStatement> statements = engine.parseScript(
+                "CREATE PROCEDURE p() SELECT COUNT(*) begin FROM t; SELECT 1; SELEC 2;");
+        assertEquals(3, statements.size());
+        assertEquals("SELECT 1;", statements.get(1).getText().toString());
+        assertNull(statements.get(1).getErrors());
+        assertTrue(statements.get(2).getErrors().contains("SELEC"), statements.get(2).getErrors());
+    }
+
+    @Test
+    void streamedStatementUsingUpItsPredictionStepsIsStopped() {
+        SqlParserEngine engine = engine(new ParseBudget(0, 1000, 0), ValuesSampling.OFF);
+        String nested = "SELECT " + "(1 + ".repeat(200) + "1" + ")".repeat(200) + " FROM t;";
+
+        ParseBudgetExceededException e = assertThrows(ParseBudgetExceededException.class,
+                () -> engine.parseStream(new StringReader(nested)));
+        assertEquals(ParseBudget.Limit.PREDICTION_STEPS, e.getLimit());
+    }
+
+    @Test
+    void streamTricklingInIsStoppedAtTheTimeLimit() {
+        SqlParserEngine engine = engine(new ParseBudget(0, 0, 200), ValuesSampling.OFF);
+        // One character every 20 ms, never ending
+        Reader trickle = new Reader() {
+            private int count;
+
+            @Override
+            public int read(char[] chars, int offset, int length) throws IOException {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                chars[offset] = "SELECT 1 + ".charAt(count++ % 11);
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        ParseBudgetExceededException e = assertThrows(ParseBudgetExceededException.class, () -> engine.parseStream(trickle));
+        assertEquals(ParseBudget.Limit.TIME, e.getLimit());
+    }
+
+    private static SqlParserEngine engine(ParseBudget budget, ValuesSampling sampling) {
+        return new SqlParserEngine(new ParserStats(), new ParserCacheManager(), true, false, false, budget, sampling);
+    }
+}
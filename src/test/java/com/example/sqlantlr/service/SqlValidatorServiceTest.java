@@ -0,0 +1,125 @@
+package com.example.sqlantlr.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlValidatorServiceTest {
+
+    private final SqlValidatorService validator = new SqlValidatorService(new ParserCacheManager(), 4, 64,
+            true, false, false, 0, 0, 0, 0, "off", 100);
+
+    @AfterEach
+    void shutdown() {
+        validator.shutdown();
+    }
+
+    @Test
+    void pipelinedResultsMatchValidateSpansInOrder() throws IOException {
+        String script = script(3000);
+        List<SqlValidatorService.ValidationResult> expected =
+                validator.validateSpans(script, StatementScanner.scan(script));
+
+        List<SqlValidatorService.ValidationResult> results = new ArrayList<>();
+        try (StatementIterator statements = new StatementIterator(new StringReader(script))) {
+            validator.validatePipelined(statements, results::add);
+        }
+
+        assertEquals(describe(expected), describe(results));
+        assertTrue(expected.stream().anyMatch(result -> !result.isValid()));
+    }
+
+    @Test
+    void readFailureIsThrownAfterTheResultsBeforeIt() throws IOException {
+        String script = script(3000);
+        List<SqlValidatorService.ValidationResult> expected =
+                validator.validateSpans(script, StatementScanner.scan(script));
+        Iterator<StatementIterator.Statement> statements = new StatementIterator(new StringReader(script));
+        Iterator<StatementIterator.Statement> failing = new Iterator<>() {
+            int read;
+
+            @Override
+            public boolean hasNext() {
+                if (read == 2000) {
+                    throw new UncheckedIOException(new IOException("Connection reset"));
+                }
+                return statements.hasNext();
+            }
+
+            @Override
+            public StatementIterator.Statement next() {
+                read++;
+                return statements.next();
+            }
+        };
+
+        List<SqlValidatorService.ValidationResult> results = new ArrayList<>();
+        UncheckedIOException e = assertThrows(UncheckedIOException.class,
+                () -> validator.validatePipelined(failing, results::add));
+
+        assertEquals("Connection reset", e.getCause().getMessage());
+        assertTrue(results.size() < 2000);
+        assertEquals(describe(expected.subList(0, results.size())), describe(results));
+    }
+
+    @Test
+    void writeFailureStopsReading() {
+        Iterator<StatementIterator.Statement> endless = new Iterator<>() {
+            int line;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public StatementIterator.Statement next() {
+                return new StatementIterator.Statement("SELECT 1;", ++line, true);
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () -> validator.validatePipelined(endless, result -> {
+            throw new IOException("Broken pipe");
+        }));
+
+        assertEquals("Broken pipe", e.getMessage());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Valid and invalid statements, with DELIMITER and a few long ones so batches end on size as well as count
+     */
+    private static String script(int statements) {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            switch (i % 7) {
+                case 0 -> script.append("SELECT a, b FROM t WHERE id = ").append(i).append(";\n");
+                case 1 -> script.append("SELEC broken ").append(i).append(";\n");
+                case 2 -> script.append("INSERT INTO t VALUES ").append("(1, 'x'), ".repeat(i % 50)).append("(2, 'y');\n");
+                case 3 -> script.append("DELIMITER $$\nCREATE PROCEDURE p").append(i)
+                        .append("() BEGIN SELECT 1; END$$\nDELIMITER ;\n");
+                case 4 -> script.append("UPDATE t SET a = '").append("z".repeat(i % 3 == 0 ? 40_000 : 5)).append("';\n");
+                case 5 -> script.append("-- comment ").append(i).append("\nDELETE FROM t WHERE a IN (1, 2);\n");
+                default -> script.append("CREATE TABLE t").append(i).append(" (id INT PRIMARY KEY,);\n");
+            }
+        }
+        return script.append("SELECT 'last'").toString();
+    }
+
+    private static List<String> describe(List<SqlValidatorService.ValidationResult> results) {
+        return results.stream()
+                .map(result -> result.getLineNumber() + " " + result.isValid() + " " + result.getError() + " " + result.getQuery())
+                .toList();
+    }
+}
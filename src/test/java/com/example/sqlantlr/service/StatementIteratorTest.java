@@ -0,0 +1,88 @@
+package com.example.sqlantlr.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatementIteratorTest {
+
+    // The iterator's first buffer; statements straddling it are scanned again after more is read
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String STATEMENTS = "SELECT 'a;b', \"c;d\", `e;f` FROM t; -- x;\n"
+            + "SELECT 1 /* ; */ + 2;\r\n"
+            + "DELIMITER $$\n"
+            + "CREATE PROCEDURE p() BEGIN IF x THEN SELECT ';'; END IF; END$$\n"
+            + "DELIMITER ;\n"
+            + "BEGIN; SELECT 'it''s;'; COMMIT;\n";
+
+    @Test
+    void statementsStraddlingTheBufferEndMatchTheScanner() throws IOException {
+        for (int offset = 0; offset <= STATEMENTS.length(); offset++) {
+            String filler = "SELECT 0;\n".repeat(BUFFER_SIZE / 10 + 1);
+            String script = filler.substring(0, BUFFER_SIZE - offset) + STATEMENTS + filler;
+
+            assertMatchesScanner(script, "offset " + offset);
+        }
+    }
+
+    @Test
+    void statementLongerThanTheBufferMatchesTheScanner() throws IOException {
+        String script = "SELECT 1;\nINSERT INTO t VALUES " + "(1, 'a;b'),\n".repeat(BUFFER_SIZE / 4) + "(2, 'c');\nSELECT 2";
+
+        assertMatchesScanner(script, "long statement");
+    }
+
+    @Test
+    void unclosedQuoteMatchesTheScanner() throws IOException {
+        String filler = "SELECT 0;\n".repeat(BUFFER_SIZE / 10 + 1);
+        for (String quote : List.of("'", "\"", "`")) {
+            assertMatchesScanner("SELECT " + quote + "a; SELECT 2;", quote);
+            assertMatchesScanner(filler + "SELECT " + quote + "a; SELECT 2;\n" + filler, quote + " at the buffer end");
+            assertMatchesScanner("SELECT 1; SELECT " + quote + "a; " + filler + filler, quote + " past the buffer end");
+        }
+    }
+
+    private static void assertMatchesScanner(String script, String message) throws IOException {
+        StatementSpans spans = StatementScanner.scan(script);
+        List<StatementIterator.Statement> statements = new ArrayList<>();
+        try (StatementIterator iterator = new StatementIterator(new TricklingReader(script))) {
+            iterator.forEachRemaining(statements::add);
+        }
+
+        assertEquals(spans.size(), statements.size(), message);
+        for (int i = 0; i < spans.size(); i++) {
+            StatementIterator.Statement statement = statements.get(i);
+            assertEquals(spans.getText(script, i).toString(), statement.getText(), message + ", statement " + i);
+            assertEquals(spans.getLine(i), statement.getLine(), message + ", statement " + i);
+            assertEquals(spans.isTerminated(i), statement.isTerminated(), message + ", statement " + i);
+        }
+    }
+
+    /**
+     * Returns fewer characters than asked for, as a socket does
+     */
+    private static final class TricklingReader extends Reader {
+        private final Reader in;
+
+        TricklingReader(String text) {
+            this.in = new StringReader(text);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return in.read(buffer, offset, Math.min(length, 4093));
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
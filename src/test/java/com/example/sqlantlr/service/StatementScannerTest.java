@@ -0,0 +1,85 @@
+package com.example.sqlantlr.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatementScannerTest {
+
+    @Test
+    void delimiterInQuotesAndCommentsEndsNoStatement() {
+        assertEquals(List.of("SELECT 'a;b', \"c;d\", `e;f` FROM t;", "SELECT 'it''s;', 'x\\';y';"),
+                scan("SELECT 'a;b', \"c;d\", `e;f` FROM t; SELECT 'it''s;', 'x\\';y';"));
+        assertEquals(List.of("SELECT 1 -- a; b\n+ 1;", "SELECT 2 # c;\n;", "SELECT /* d; */ 3;"),
+                scan("-- lead;\nSELECT 1 -- a; b\n+ 1; SELECT 2 # c;\n; /* e; */ SELECT /* d; */ 3;"));
+        // Not a comment without the space after --
+        assertEquals(List.of("SELECT 1--1;", "SELECT 2;"), scan("SELECT 1--1; SELECT 2;"));
+    }
+
+    @Test
+    void unclosedQuoteIsAnOrdinaryCharacter() {
+        assertEquals(List.of("SELECT 'a;", "SELECT 2;"), scan("SELECT 'a; SELECT 2;"));
+    }
+
+    @Test
+    void delimiterCommandSetsTheDelimiter() {
+        StatementSpans spans = StatementScanner.scan(
+                "SELECT 1;\nDELIMITER $$\nCREATE PROCEDURE p() BEGIN SELECT ';'; END$$\nSELECT 2$$\nDELIMITER ;\nSELECT 3;");
+        assertEquals(4, spans.size());
+        assertEquals(List.of(1, 3, 4, 6), List.of(spans.getLine(0), spans.getLine(1), spans.getLine(2), spans.getLine(3)));
+        assertEquals(List.of("SELECT 1;", "CREATE PROCEDURE p() BEGIN SELECT ';'; END", "SELECT 2", "SELECT 3;"),
+                scan("SELECT 1;\nDELIMITER $$\nCREATE PROCEDURE p() BEGIN SELECT ';'; END$$\nSELECT 2$$\nDELIMITER ;\nSELECT 3;"));
+    }
+
+    @Test
+    void unterminatedLastStatement() {
+        StatementSpans spans = StatementScanner.scan("SELECT 1; SELECT 2 ");
+        assertEquals(2, spans.size());
+        assertEquals(true, spans.isTerminated(0));
+        assertEquals(false, spans.isTerminated(1));
+        assertEquals("SELECT 2", spans.getText("SELECT 1; SELECT 2 ", 1).toString());
+    }
+
+    @Test
+    void routineBodiesStayInOneStatement() {
+        for (String routine : List.of(
+                "CREATE PROCEDURE p(a INT) BEGIN SELECT 1; IF a THEN SELECT 2; END IF; END;",
+                "CREATE DEFINER = root PROCEDURE p(begin INT) COMMENT 'c' BEGIN SELECT begin; END;",
+                "CREATE FUNCTION f() RETURNS INT DETERMINISTIC BEGIN DECLARE x INT; SET x = 1; RETURN x; END;",
+                "CREATE FUNCTION f() RETURNS DECIMAL(10,2) BEGIN RETURN 1; END;",
+                "CREATE FUNCTION f() RETURNS VARCHAR(5) CHARSET utf8mb4 BEGIN RETURN 'a'; END;",
+                "CREATE TRIGGER tr BEFORE INSERT ON t FOR EACH ROW BEGIN SET NEW.a = 1; SET NEW.b = 2; END;",
+                "CREATE TRIGGER tr BEFORE INSERT ON t FOR EACH ROW FOLLOWS `other` BEGIN SET NEW.a = 1; END;",
+                "CREATE EVENT e ON SCHEDULE EVERY 1 DAY DO BEGIN DELETE FROM t; SELECT 1; END;",
+                "CREATE PROCEDURE p() BEGIN REPEAT SET i = i + 1; UNTIL i > 5 END REPEAT; SELECT end FROM t; END;",
+                "CREATE PROCEDURE p() lbl: BEGIN SELECT CASE WHEN a THEN 1 ELSE 2 END FROM t; END lbl;",
+                "CREATE PROCEDURE p() BEGIN WHILE a DO SELECT 1; END WHILE; LOOP LEAVE x; END LOOP; END;",
+                "BEGIN NOT ATOMIC SELECT 1; SELECT 2; END;")) {
+            assertEquals(List.of(routine, "SELECT 3;"), scan(routine + "\nSELECT 3;"), routine);
+        }
+    }
+
+    @Test
+    void beginAndEndAsNamesOpenNoBlock() {
+        assertEquals(List.of("CREATE TABLE events (id INT, begin DATETIME);", "INSERT INTO events VALUES (1, NOW());",
+                        "DROP TABLEE events;"),
+                scan("CREATE TABLE events (id INT, begin DATETIME);\nINSERT INTO events VALUES (1, NOW());\nDROP TABLEE events;"));
+        assertEquals(List.of("SELECT begin FROM t;", "SELEC x;"), scan("SELECT begin FROM t; SELEC x;"));
+        assertEquals(List.of("BEGIN;", "SELECT begin, end FROM t WHERE t.begin < end;", "BEGIN WORK;", "COMMIT;"),
+                scan("BEGIN; SELECT begin, end FROM t WHERE t.begin < end; BEGIN WORK; COMMIT;"));
+        assertEquals(List.of("XA BEGIN 'x';", "SELECT 1;"), scan("XA BEGIN 'x'; SELECT 1;"));
+        assertEquals(List.of("UPDATE t SET end = 1, begin = 2;", "SELECT 2;"), scan("UPDATE t SET end = 1, begin = 2; SELECT 2;"));
+    }
+
+    static List<String> scan(String script) {
+        StatementSpans spans = StatementScanner.scan(script);
+        List<String> statements = new ArrayList<>();
+        for (int i = 0; i < spans.size(); i++) {
+            statements.add(spans.getText(script, i).toString());
+        }
+        return statements;
+    }
+}